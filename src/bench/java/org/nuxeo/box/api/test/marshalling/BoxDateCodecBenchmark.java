@@ -0,0 +1,151 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.test.marshalling;
+
+import org.joda.time.DateTime;
+import org.joda.time.format.ISODateTimeFormat;
+import org.nuxeo.box.api.utils.ISO8601DateCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting and parsing of the dates of a listing, with the former Joda formatter and SimpleDateFormat parsing, and
+ * with the ISO 8601 codec. The dates of a listing are clustered within a few seconds, or spread over years. The setup
+ * fails if the codec and Joda do not write the same dates.
+ *
+ * @since 7.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BoxDateCodecBenchmark {
+
+    protected static final int SIZE = 100;
+
+    protected Calendar[] clustered;
+
+    protected Calendar[] spread;
+
+    protected String[] formatted;
+
+    protected DateFormat dateFormat;
+
+    @Setup
+    public void setup() throws ParseException {
+        Random random = new Random(0);
+        TimeZone timeZone = TimeZone.getTimeZone("Europe/Paris");
+        long now = System.currentTimeMillis();
+        clustered = new Calendar[SIZE];
+        spread = new Calendar[SIZE];
+        formatted = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            clustered[i] = Calendar.getInstance(timeZone);
+            clustered[i].setTimeInMillis(now - random.nextInt(3000));
+            spread[i] = Calendar.getInstance(timeZone);
+            spread[i].setTimeInMillis(now - (random.nextLong() & Long.MAX_VALUE) % (10 * 365 * 24 * 3600 * 1000L));
+            // Without milliseconds, which the former parsing did not support
+            formatted[i] = ISODateTimeFormat.dateTimeNoMillis().print(new DateTime(spread[i]));
+        }
+        dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssz");
+        for (Calendar[] calendars : new Calendar[][] { clustered, spread }) {
+            for (Calendar calendar : calendars) {
+                String expected = ISODateTimeFormat.dateTime().print(new DateTime(calendar));
+                String actual = ISO8601DateCodec.format(calendar);
+                if (!expected.equals(actual)) {
+                    throw new IllegalStateException("Codec output differs:\n" + expected + "\n" + actual);
+                }
+                if (ISO8601DateCodec.parse(actual).getTime() != calendar.getTimeInMillis()) {
+                    throw new IllegalStateException("Codec cannot parse back " + actual);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void jodaFormatClustered(Blackhole bh) {
+        for (Calendar calendar : clustered) {
+            bh.consume(ISODateTimeFormat.dateTime().print(new DateTime(calendar)));
+        }
+    }
+
+    @Benchmark
+    public void codecFormatClustered(Blackhole bh) {
+        for (Calendar calendar : clustered) {
+            bh.consume(ISO8601DateCodec.format(calendar));
+        }
+    }
+
+    @Benchmark
+    public void jodaFormatSpread(Blackhole bh) {
+        for (Calendar calendar : spread) {
+            bh.consume(ISODateTimeFormat.dateTime().print(new DateTime(calendar)));
+        }
+    }
+
+    @Benchmark
+    public void codecFormatSpread(Blackhole bh) {
+        for (Calendar calendar : spread) {
+            bh.consume(ISO8601DateCodec.format(calendar));
+        }
+    }
+
+    @Benchmark
+    public void simpleDateFormatParse(Blackhole bh) throws ParseException {
+        for (String input : formatted) {
+            // The former parsing, moving the offset after a GMT prefix
+            String date = input.endsWith("Z") ? input.substring(0, input.length() - 1) + "GMT-00:00"
+                    : input.substring(0, input.length() - 6) + "GMT" + input.substring(input.length() - 6);
+            bh.consume(dateFormat.parse(date));
+        }
+    }
+
+    @Benchmark
+    public void codecParse(Blackhole bh) throws ParseException {
+        for (String input : formatted) {
+            bh.consume(ISO8601DateCodec.parse(input));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BoxDateCodecBenchmark.class.getSimpleName()).addProfiler(
+                GCProfiler.class).build()).run();
+    }
+}
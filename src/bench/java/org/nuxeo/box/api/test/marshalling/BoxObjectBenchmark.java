@@ -0,0 +1,157 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.test.marshalling;
+
+import org.nuxeo.box.api.marshalling.dao.BoxCollection;
+import org.nuxeo.box.api.marshalling.dao.BoxFile;
+import org.nuxeo.box.api.marshalling.dao.BoxFolder;
+import org.nuxeo.box.api.marshalling.dao.BoxItem;
+import org.nuxeo.box.api.marshalling.dao.BoxObject;
+import org.nuxeo.box.api.marshalling.dao.BoxTypedObject;
+import org.nuxeo.box.api.marshalling.dao.BoxUser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocations of a full box folder, built the way BoxAdapter does, with the former reflective deep copy and with
+ * structural sharing. Run with the gc profiler: the gc.alloc.rate.norm lines give the bytes allocated per folder.
+ *
+ * @since 7.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BoxObjectBenchmark {
+
+    protected Map<String, Object> folderProperties;
+
+    @Setup
+    public void setup() {
+        BoxUser user = newUser("jdoe");
+        ArrayList<BoxTypedObject> pathCollection = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            pathCollection.add(newMiniItem(new BoxFolder(), "ancestor" + i));
+        }
+        ArrayList<BoxTypedObject> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(newMiniItem(i % 10 == 0 ? new BoxFolder() : new BoxFile(), "child" + i));
+        }
+        Map<String, Object> collectionProperties = new HashMap<>();
+        collectionProperties.put(BoxCollection.FIELD_ENTRIES, items);
+        collectionProperties.put(BoxCollection.FIELD_TOTAL_COUNT, items.size());
+
+        folderProperties = new HashMap<>();
+        folderProperties.put(BoxItem.FIELD_ID, "id");
+        folderProperties.put(BoxItem.FIELD_SEQUENCE_ID, "id");
+        folderProperties.put(BoxItem.FIELD_ETAG, "id_0.0");
+        folderProperties.put(BoxItem.FIELD_NAME, "folder");
+        folderProperties.put(BoxItem.FIELD_CREATED_BY, user);
+        folderProperties.put(BoxItem.FIELD_MODIFIED_BY, user);
+        folderProperties.put(BoxItem.FIELD_OWNED_BY, user);
+        folderProperties.put(BoxItem.FIELD_PARENT, pathCollection.get(0));
+        folderProperties.put(BoxItem.FIELD_PATH_COLLECTION, pathCollection);
+        folderProperties.put(BoxFolder.FIELD_ITEM_COLLECTION, new BoxCollection(collectionProperties));
+    }
+
+    protected static BoxUser newUser(String login) {
+        Map<String, Object> userProperties = new HashMap<>();
+        userProperties.put(BoxItem.FIELD_ID, login);
+        userProperties.put(BoxItem.FIELD_NAME, login);
+        userProperties.put(BoxUser.FIELD_LOGIN, login);
+        return new BoxUser(Collections.unmodifiableMap(userProperties));
+    }
+
+    protected static BoxTypedObject newMiniItem(BoxTypedObject item, String name) {
+        item.put(BoxItem.FIELD_ID, name);
+        item.put(BoxItem.FIELD_SEQUENCE_ID, name);
+        item.put(BoxItem.FIELD_ETAG, name + "_0.0");
+        item.put(BoxItem.FIELD_NAME, name);
+        return item;
+    }
+
+    @Benchmark
+    public BoxFolder deepCopy() {
+        Map<String, Object> copy = new HashMap<>();
+        deepCopyMap(copy, folderProperties);
+        return new BoxFolder(Collections.unmodifiableMap(copy));
+    }
+
+    @Benchmark
+    public BoxFolder structuralSharing() {
+        return new BoxFolder(Collections.unmodifiableMap(folderProperties));
+    }
+
+    /**
+     * The copy BoxObject used to make of all its nested objects.
+     */
+    @SuppressWarnings("unchecked")
+    protected static void deepCopyMap(Map<String, Object> destination, Map<String, Object> source) {
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            destination.put(entry.getKey(), deepCopy(entry.getValue()));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static Object deepCopy(Object value) {
+        if (value instanceof BoxObject) {
+            try {
+                BoxObject boxObject = (BoxObject) value;
+                Map<String, Object> copy = new HashMap<>();
+                for (String key : boxObject.getKeySet()) {
+                    copy.put(key, deepCopy(boxObject.getValue(key)));
+                }
+                return value.getClass().getConstructor(Map.class).newInstance(copy);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        } else if (value instanceof ArrayList<?>) {
+            List<Object> list = new ArrayList<>();
+            for (Object element : (ArrayList<Object>) value) {
+                list.add(deepCopy(element));
+            }
+            return list;
+        }
+        return value;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BoxObjectBenchmark.class.getSimpleName()).addProfiler(
+                GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.test.marshalling;
+
+import org.nuxeo.box.api.marshalling.dao.BoxCollaboration;
+import org.nuxeo.box.api.marshalling.dao.BoxCollection;
+import org.nuxeo.box.api.marshalling.dao.BoxComment;
+import org.nuxeo.box.api.marshalling.dao.BoxFile;
+import org.nuxeo.box.api.marshalling.dao.BoxFolder;
+import org.nuxeo.box.api.marshalling.dao.BoxItem;
+import org.nuxeo.box.api.marshalling.dao.BoxTypedObject;
+import org.nuxeo.box.api.marshalling.dao.BoxUser;
+import org.nuxeo.box.api.marshalling.exceptions.BoxJSONException;
+import org.nuxeo.box.api.marshalling.jsonparsing.BoxJSONParser;
+import org.nuxeo.box.api.marshalling.jsonparsing.BoxResourceHub;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a folder with its children, of a collaboration and of a comment, with the plain bean serializers
+ * and with the box object serializers, whose output is checked by {@code BoxSerializerTest}.
+ *
+ * @since 7.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BoxSerializerBenchmark {
+
+    protected BoxJSONParser beanParser;
+
+    protected BoxJSONParser boxParser;
+
+    protected BoxFolder folder;
+
+    protected BoxCollaboration collaboration;
+
+    protected BoxComment comment;
+
+    @Setup
+    public void setup() {
+        BoxResourceHub hub = new BoxResourceHub();
+        beanParser = new BoxJSONParser(hub, false);
+        boxParser = new BoxJSONParser(hub, true);
+
+        BoxUser user = BoxObjectBenchmark.newUser("jdoe");
+        ArrayList<BoxTypedObject> pathCollection = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            pathCollection.add(BoxObjectBenchmark.newMiniItem(new BoxFolder(), "ancestor" + i));
+        }
+        ArrayList<BoxTypedObject> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            BoxTypedObject item = BoxObjectBenchmark.newMiniItem(i % 10 == 0 ? new BoxFolder() : new BoxFile(),
+                    "child" + i);
+            if (item instanceof BoxFile) {
+                item.put(BoxFile.FIELD_SHA1, "da39a3ee5e6b4b0d3255bfef95601890afd80709");
+                item.put(BoxFile.FIELD_SIZE, 1024d);
+            }
+            items.add(item);
+        }
+        Map<String, Object> collectionProperties = new HashMap<>();
+        collectionProperties.put(BoxCollection.FIELD_ENTRIES, items);
+        collectionProperties.put(BoxCollection.FIELD_TOTAL_COUNT, items.size());
+        Map<String, Object> pathProperties = new HashMap<>();
+        pathProperties.put(BoxCollection.FIELD_ENTRIES, pathCollection);
+        pathProperties.put(BoxCollection.FIELD_TOTAL_COUNT, pathCollection.size());
+
+        folder = new BoxFolder();
+        folder.put(BoxItem.FIELD_ID, "id");
+        folder.put(BoxItem.FIELD_SEQUENCE_ID, "id");
+        folder.put(BoxItem.FIELD_ETAG, "id_0.0");
+        folder.put(BoxItem.FIELD_NAME, "folder");
+        folder.put(BoxItem.FIELD_DESCRIPTION, null);
+        folder.put(BoxItem.FIELD_CREATED_BY, user);
+        folder.put(BoxItem.FIELD_MODIFIED_BY, user);
+        folder.put(BoxItem.FIELD_OWNED_BY, user);
+        folder.put(BoxItem.FIELD_PARENT, pathCollection.get(0));
+        folder.put(BoxItem.FIELD_PATH_COLLECTION, new BoxCollection(pathProperties));
+        folder.put(BoxItem.FIELD_TAGS, new String[] { "tag1", "tag2" });
+        folder.put(BoxFolder.FIELD_ITEM_COLLECTION, new BoxCollection(collectionProperties));
+        folder.put(BoxFolder.FIELD_HAS_COLLABORATIONS, true);
+
+        collaboration = new BoxCollaboration();
+        collaboration.put(BoxCollaboration.FIELD_ID, "id:jdoe");
+        collaboration.put(BoxCollaboration.FIELD_CREATED_BY, user);
+        collaboration.put(BoxCollaboration.FIELD_ACCESSIBLE_BY, user);
+        collaboration.put(BoxCollaboration.FIELD_ROLE, "editor");
+        collaboration.put(BoxCollaboration.FIELD_STATUS, "accepted");
+        collaboration.put(BoxCollaboration.FIELD_FOLDER, pathCollection.get(1));
+
+        comment = new BoxComment();
+        comment.put(BoxComment.FIELD_ID, "comment");
+        comment.put(BoxComment.FIELD_MESSAGE, "message");
+        comment.put(BoxComment.FIELD_IS_REPLY_COMMENT, false);
+        comment.put(BoxComment.FIELD_CREATED_BY, user);
+        comment.put(BoxComment.FIELD_ITEM, items.get(1));
+    }
+
+    @Benchmark
+    public String beanFolder() throws BoxJSONException {
+        return beanParser.convertBoxObjectToJSONString(folder);
+    }
+
+    @Benchmark
+    public String boxFolder() throws BoxJSONException {
+        return boxParser.convertBoxObjectToJSONString(folder);
+    }
+
+    @Benchmark
+    public String beanCollaboration() throws BoxJSONException {
+        return beanParser.convertBoxObjectToJSONString(collaboration);
+    }
+
+    @Benchmark
+    public String boxCollaboration() throws BoxJSONException {
+        return boxParser.convertBoxObjectToJSONString(collaboration);
+    }
+
+    @Benchmark
+    public String beanComment() throws BoxJSONException {
+        return beanParser.convertBoxObjectToJSONString(comment);
+    }
+
+    @Benchmark
+    public String boxComment() throws BoxJSONException {
+        return boxParser.convertBoxObjectToJSONString(comment);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BoxSerializerBenchmark.class.getSimpleName()).addProfiler(
+                GCProfiler.class).build()).run();
+    }
+}
@@ -31,4 +31,176 @@ public class BoxConstants {
 
     public static final String BOX_COLLAB_DELIM = "-BOX-";
 
+    /**
+     * Maximum number of results counted for the total_count of a collection, -1 to count them all. Beyond it the
+     * total_count is -1.
+     *
+     * @since 7.3
+     */
+    public static final String BOX_COUNT_UP_TO_PROPERTY = "nuxeo.box.count.upTo";
+
+    /**
+     * @since 7.3
+     */
+    public static final String BOX_COUNT_UP_TO = "-1";
+
+    /**
+     * @since 7.3
+     */
+    public static final String BOX_PRINCIPAL_CACHE_MAX_SIZE_PROPERTY = "nuxeo.box.principal.cache.maxSize";
+
+    /**
+     * @since 7.3
+     */
+    public static final String BOX_PRINCIPAL_CACHE_MAX_SIZE = "1000";
+
+    /**
+     * Time to live in seconds of the resolved box users and groups
+     *
+     * @since 7.3
+     */
+    public static final String BOX_PRINCIPAL_CACHE_TTL_PROPERTY = "nuxeo.box.principal.cache.ttl";
+
+    /**
+     * @since 7.3
+     */
+    public static final String BOX_PRINCIPAL_CACHE_TTL = "600";
+
+    /**
+     * Maximum size in bytes of the JSON body of a request, larger ones are rejected with a 413 status
+     *
+     * @since 7.3
+     */
+    public static final String BOX_MAX_BODY_SIZE_PROPERTY = "nuxeo.box.body.maxSize";
+
+    /**
+     * @since 7.3
+     */
+    public static final String BOX_MAX_BODY_SIZE = "1048576";
+
+    /**
+     * @since 7.3
+     */
+    public static final int STATUS_REQUEST_ENTITY_TOO_LARGE = 413;
+
+    /**
+     * @since 7.3
+     */
+    public static final int STATUS_PARTIAL_CONTENT = 206;
+
+    /**
+     * @since 7.3
+     */
+    public static final int STATUS_REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+
+    /**
+     * Compression level, from 0 (disabled) to 9, of the responses of the clients accepting gzip or deflate. It can be
+     * set per endpoint by suffixing the property with the endpoint name: folders, files, items, search, comments or
+     * collaborations.
+     *
+     * @since 7.3
+     */
+    public static final String BOX_COMPRESSION_LEVEL_PROPERTY = "nuxeo.box.compression.level";
+
+    /**
+     * @since 7.3
+     */
+    public static final String BOX_COMPRESSION_LEVEL = "6";
+
+    /**
+     * Size in bytes below which responses are not compressed
+     *
+     * @since 7.3
+     */
+    public static final String BOX_COMPRESSION_THRESHOLD_PROPERTY = "nuxeo.box.compression.threshold";
+
+    /**
+     * @since 7.3
+     */
+    public static final String BOX_COMPRESSION_THRESHOLD = "1024";
+
+    /**
+     * Binary JSON media types offered to the machine clients
+     *
+     * @since 7.3
+     */
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
+    /**
+     * @since 7.3
+     */
+    public static final String APPLICATION_CBOR = "application/cbor";
+
+    /**
+     * Size in bytes of the parts of the upload sessions, but the last one
+     *
+     * @since 7.3
+     */
+    public static final String BOX_UPLOAD_PART_SIZE_PROPERTY = "nuxeo.box.upload.partSize";
+
+    /**
+     * @since 7.3
+     */
+    public static final String BOX_UPLOAD_PART_SIZE = "8388608";
+
+    /**
+     * Time to live in seconds of the upload sessions, after which their parts are deleted
+     *
+     * @since 7.3
+     */
+    public static final String BOX_UPLOAD_SESSION_TTL_PROPERTY = "nuxeo.box.upload.session.ttl";
+
+    /**
+     * @since 7.3
+     */
+    public static final String BOX_UPLOAD_SESSION_TTL = "86400";
+
+    /**
+     * Maximum size in bytes of a file uploaded in parts
+     *
+     * @since 7.3
+     */
+    public static final String BOX_UPLOAD_MAX_SIZE_PROPERTY = "nuxeo.box.upload.maxSize";
+
+    /**
+     * @since 7.3
+     */
+    public static final String BOX_UPLOAD_MAX_SIZE = "16106127360";
+
+    /**
+     * Maximum number of upload sessions of a user at a time
+     *
+     * @since 7.3
+     */
+    public static final String BOX_UPLOAD_MAX_SESSIONS_PROPERTY = "nuxeo.box.upload.maxSessions";
+
+    /**
+     * @since 7.3
+     */
+    public static final String BOX_UPLOAD_MAX_SESSIONS = "10";
+
+    /**
+     * Transient store of the upload sessions and of their parts, shared by the nodes of a cluster
+     *
+     * @since 7.3
+     */
+    public static final String BOX_UPLOAD_STORE = "BoxUploadSessions";
+
+    /**
+     * Facet of the files whose SHA-1 was computed on upload, with the MD5 of the content it was computed for
+     *
+     * @since 7.3
+     */
+    public static final String BOX_CONTENT_FACET = "BoxContent";
+
+    /**
+     * @since 7.3
+     */
+    public static final String BOX_CONTENT_SHA1 = "box:sha1";
+
+    /**
+     * @since 7.3
+     */
+    public static final String BOX_CONTENT_MD5 = "box:md5";
+
 }
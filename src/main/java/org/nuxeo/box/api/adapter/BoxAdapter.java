@@ -16,31 +16,30 @@
  */
 package org.nuxeo.box.api.adapter;
 
+import org.nuxeo.box.api.BoxConstants;
 import org.nuxeo.box.api.marshalling.dao.BoxCollection;
-import org.nuxeo.box.api.marshalling.dao.BoxFile;
 import org.nuxeo.box.api.marshalling.dao.BoxFolder;
 import org.nuxeo.box.api.marshalling.dao.BoxItem;
 import org.nuxeo.box.api.marshalling.dao.BoxTypedObject;
 import org.nuxeo.box.api.marshalling.dao.BoxUser;
 import org.nuxeo.box.api.marshalling.exceptions.BoxJSONException;
+import org.nuxeo.box.api.service.BoxRequestCache;
 import org.nuxeo.box.api.service.BoxService;
-import org.joda.time.DateTime;
-import org.joda.time.format.ISODateTimeFormat;
+import org.nuxeo.box.api.utils.ISO8601DateCodec;
 import org.nuxeo.ecm.core.api.ClientException;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.IdRef;
-import org.nuxeo.ecm.core.api.NuxeoPrincipal;
 import org.nuxeo.ecm.platform.tag.Tag;
 import org.nuxeo.ecm.platform.tag.TagService;
-import org.nuxeo.ecm.platform.usermanager.UserManager;
 import org.nuxeo.ecm.quota.size.QuotaAware;
 import org.nuxeo.ecm.quota.size.QuotaAwareDocument;
 import org.nuxeo.runtime.api.Framework;
 
 import java.lang.reflect.InvocationTargetException;
 import java.text.ParseException;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -55,96 +54,165 @@ public abstract class BoxAdapter {
 
     protected final DocumentModel doc;
 
+    /**
+     * Box properties already computed for this document, filled on demand by {@link #getProperty(String)}
+     */
     protected final Map<String, Object> boxProperties = new HashMap<>();
 
     protected BoxItem boxItem;
 
+    protected List<BoxTypedObject> ancestors;
+
     protected final BoxService boxService = Framework.getLocalService(BoxService.class);
 
+    /**
+     * Fields of the full box item representation shared by all box items, in their computation order
+     */
+    protected static final List<String> ITEM_FIELDS = Arrays.asList(BoxItem.FIELD_ID, BoxItem.FIELD_SEQUENCE_ID,
+            BoxItem.FIELD_ETAG, BoxItem.FIELD_NAME, BoxItem.FIELD_CREATED_AT, BoxItem.FIELD_MODIFIED_AT,
+            BoxItem.FIELD_DESCRIPTION, BoxItem.FIELD_SIZE, BoxItem.FIELD_PATH_COLLECTION, BoxItem.FIELD_PARENT,
+            BoxItem.FIELD_CREATED_BY, BoxItem.FIELD_MODIFIED_BY, BoxItem.FIELD_OWNED_BY, BoxItem.FIELD_SHARED_LINK,
+            BoxItem.FIELD_ITEM_STATUS, BoxItem.FIELD_TAGS);
+
+    /**
+     * The adapter doesn't compute anything at instantiation: each box field is produced on demand by
+     * {@link #computeProperty(String)} when a box item containing it is requested.
+     */
     public BoxAdapter(DocumentModel doc) throws ClientException {
         this.doc = doc;
-        CoreSession session = doc.getCoreSession();
-
-        boxProperties.put(BoxItem.FIELD_ID, boxService.getBoxId(doc));
-        boxProperties.put(BoxItem.FIELD_SEQUENCE_ID, boxService.getBoxSequenceId(doc));
-        boxProperties.put(BoxItem.FIELD_ETAG, boxService.getBoxEtag(doc));
-
-        boxProperties.put(BoxItem.FIELD_NAME, doc.getName());
-        boxProperties.put(BoxItem.FIELD_CREATED_AT,
-                ISODateTimeFormat.dateTime().print(new DateTime(doc.getPropertyValue("dc:created"))));
-        boxProperties.put(BoxItem.FIELD_MODIFIED_AT,
-                ISODateTimeFormat.dateTime().print(new DateTime(doc.getPropertyValue("dc:modified"))));
-        boxProperties.put(BoxItem.FIELD_DESCRIPTION, doc.getPropertyValue("dc:description"));
-
-        // size
-        QuotaAwareDocument quotaAwareDocument = null;
-        if (Framework.getRuntime().getBundle("org.nuxeo.ecm.quota.core") != null) {
-            quotaAwareDocument = (QuotaAwareDocument) doc.getAdapter(QuotaAware.class);
-        }
-        boxProperties.put(BoxItem.FIELD_SIZE, quotaAwareDocument != null ? quotaAwareDocument.getInnerSize() : -1.0);
-
-        // path_collection
-        final DocumentModel parentDoc = session.getParentDocument(doc.getRef());
-        final Map<String, Object> pathCollection = new HashMap<>();
-        List<BoxTypedObject> hierarchy = getParentsHierarchy(session, parentDoc);
-        pathCollection.put(BoxCollection.FIELD_ENTRIES, hierarchy);
-        pathCollection.put(BoxCollection.FIELD_TOTAL_COUNT, hierarchy.size());
-        BoxCollection boxPathCollection = new BoxCollection(Collections.unmodifiableMap(pathCollection));
-        boxProperties.put(BoxItem.FIELD_PATH_COLLECTION, boxPathCollection);
-
-        // parent
-        final Map<String, Object> parentProperties = new HashMap<>();
-        parentProperties.put(BoxItem.FIELD_ID, boxService.getBoxId(parentDoc));
-        parentProperties.put(BoxItem.FIELD_SEQUENCE_ID, boxService.getBoxSequenceId(parentDoc));
-        parentProperties.put(BoxItem.FIELD_NAME, boxService.getBoxName(parentDoc));
-        parentProperties.put(BoxItem.FIELD_ETAG, boxService.getBoxEtag(parentDoc));
-        BoxFolder parentFolder = new BoxFolder(Collections.unmodifiableMap(parentProperties));
-        boxProperties.put(BoxItem.FIELD_PARENT, parentFolder);
-
-        // Users
-        // Creator
-        final UserManager userManager = Framework.getLocalService(UserManager.class);
-        String creator = doc.getPropertyValue("dc:creator") != null ? (String) doc.getPropertyValue("dc:creator")
-                : "system";
-        NuxeoPrincipal principalCreator = userManager.getPrincipal(creator);
-        final BoxUser boxCreator = boxService.fillUser(principalCreator);
-        boxProperties.put(BoxItem.FIELD_CREATED_BY, boxCreator);
-
-        // Last Contributor
-        String lastContributor = doc.getPropertyValue("dc:lastContributor") != null ? (String) doc.getPropertyValue("dc:lastContributor")
-                : "system";
-        final NuxeoPrincipal principalLastContributor = userManager.getPrincipal(lastContributor);
-        final BoxUser boxContributor = boxService.fillUser(principalLastContributor);
-        boxProperties.put(BoxItem.FIELD_MODIFIED_BY, boxContributor);
-
-        // Owner
-        boxProperties.put(BoxItem.FIELD_OWNED_BY, boxCreator);
-
-        // Shared Link
-        boxProperties.put(BoxItem.FIELD_SHARED_LINK, null);
-
-        // Status
-        boxProperties.put(BoxItem.FIELD_ITEM_STATUS, doc.getCurrentLifeCycleState());
-
-        // Tags
-        boxProperties.put(BoxItem.FIELD_TAGS, getTags(session));
-
     }
 
+    /**
+     * @return the full box item, all fields are computed on the first call
+     */
     public BoxItem getBoxItem() {
+        if (boxItem == null) {
+            final Map<String, Object> properties = new HashMap<>();
+            for (String field : getFieldNames()) {
+                properties.put(field, getProperty(field));
+            }
+            boxItem = newBoxItem(Collections.unmodifiableMap(properties));
+        }
         return boxItem;
     }
 
+    /**
+     * Return a box item containing only the given fields. Fields which are not requested are not computed.
+     *
+     * @param fields comma separated list of fields, or '*' for all of them
+     */
+    public BoxItem getBoxItem(String fields) {
+        if (fields == null || BoxConstants.BOX_FIELDS.equals(fields)) {
+            return getBoxItem();
+        }
+        final Map<String, Object> properties = new HashMap<>();
+        final List<String> fieldNames = getFieldNames();
+        for (String field : fields.split(",")) {
+            field = field.trim();
+            if (fieldNames.contains(field)) {
+                properties.put(field, getProperty(field));
+            }
+        }
+        return newBoxItem(Collections.unmodifiableMap(properties));
+    }
+
     abstract public BoxItem getMiniItem();
 
+    /**
+     * @return the names of the fields of the full box item
+     */
+    protected abstract List<String> getFieldNames();
+
+    /**
+     * Instantiate the box item type related to this adapter
+     */
+    protected abstract BoxItem newBoxItem(Map<String, Object> properties);
+
+    /**
+     * @return the value of the given box field, computed once per adapter
+     */
+    protected Object getProperty(String field) throws ClientException {
+        if (!boxProperties.containsKey(field)) {
+            boxProperties.put(field, computeProperty(field));
+        }
+        return boxProperties.get(field);
+    }
+
+    /**
+     * Compute a single box field from the Nuxeo document. Sub classes handle their own fields and delegate to this
+     * one for the common ones.
+     */
+    protected Object computeProperty(String field) throws ClientException {
+        switch (field) {
+        case BoxItem.FIELD_ID:
+            return boxService.getBoxId(doc);
+        case BoxItem.FIELD_SEQUENCE_ID:
+            return boxService.getBoxSequenceId(doc);
+        case BoxItem.FIELD_ETAG:
+            return boxService.getBoxEtag(doc);
+        case BoxItem.FIELD_NAME:
+            return doc.getName();
+        case BoxItem.FIELD_CREATED_AT:
+            return ISO8601DateCodec.format((Calendar) doc.getPropertyValue("dc:created"));
+        case BoxItem.FIELD_MODIFIED_AT:
+            return ISO8601DateCodec.format((Calendar) doc.getPropertyValue("dc:modified"));
+        case BoxItem.FIELD_DESCRIPTION:
+            return doc.getPropertyValue("dc:description");
+        case BoxItem.FIELD_SIZE:
+            QuotaAwareDocument quotaAwareDocument = null;
+            if (Framework.getRuntime().getBundle("org.nuxeo.ecm.quota.core") != null) {
+                quotaAwareDocument = (QuotaAwareDocument) doc.getAdapter(QuotaAware.class);
+            }
+            return quotaAwareDocument != null ? quotaAwareDocument.getInnerSize() : -1.0;
+        case BoxItem.FIELD_PATH_COLLECTION:
+            final Map<String, Object> pathCollection = new HashMap<>();
+            List<BoxTypedObject> hierarchy = getAncestors();
+            pathCollection.put(BoxCollection.FIELD_ENTRIES, hierarchy);
+            pathCollection.put(BoxCollection.FIELD_TOTAL_COUNT, hierarchy.size());
+            return new BoxCollection(Collections.unmodifiableMap(pathCollection));
+        case BoxItem.FIELD_PARENT:
+            // The parent is the first entry of the path collection
+            final Map<String, Object> parentProperties = new HashMap<>();
+            List<BoxTypedObject> pathEntries = getAncestors();
+            if (!pathEntries.isEmpty()) {
+                BoxTypedObject parent = pathEntries.get(0);
+                for (String parentField : parent.getKeySet()) {
+                    parentProperties.put(parentField, parent.getValue(parentField));
+                }
+            } else {
+                parentProperties.put(BoxItem.FIELD_ID, null);
+                parentProperties.put(BoxItem.FIELD_SEQUENCE_ID, null);
+                parentProperties.put(BoxItem.FIELD_NAME, null);
+                parentProperties.put(BoxItem.FIELD_ETAG, null);
+            }
+            return new BoxFolder(Collections.unmodifiableMap(parentProperties));
+        case BoxItem.FIELD_CREATED_BY:
+            return getBoxUser("dc:creator");
+        case BoxItem.FIELD_OWNED_BY:
+            // Owner is the creator
+            return getProperty(BoxItem.FIELD_CREATED_BY);
+        case BoxItem.FIELD_MODIFIED_BY:
+            return getBoxUser("dc:lastContributor");
+        case BoxItem.FIELD_SHARED_LINK:
+            return null;
+        case BoxItem.FIELD_ITEM_STATUS:
+            return doc.getCurrentLifeCycleState();
+        case BoxItem.FIELD_TAGS:
+            return getTags(doc.getCoreSession());
+        default:
+            return null;
+        }
+    }
+
     /**
      * Update the box item properties
      *
      * @param boxItem containing values updated
      */
     public void setBoxItem(BoxItem boxItem) {
+        BoxItem currentBoxItem = getBoxItem();
         for (String field : boxItem.getKeySet()) {
-            this.boxItem.put(field, boxItem.getValue(field));
+            currentBoxItem.put(field, boxItem.getValue(field));
         }
     }
 
@@ -152,31 +220,30 @@ public abstract class BoxAdapter {
         return doc;
     }
 
-    protected List<BoxTypedObject> getParentsHierarchy(CoreSession session, DocumentModel parentDoc)
-            throws ClientException {
-        final List<BoxTypedObject> pathCollection = new ArrayList<>();
-        while (parentDoc != null) {
-            final Map<String, Object> parentCollectionProperties = new HashMap<>();
-            parentCollectionProperties.put(BoxItem.FIELD_ID, boxService.getBoxId(parentDoc));
-            parentCollectionProperties.put(BoxItem.FIELD_SEQUENCE_ID, boxService.getBoxSequenceId(parentDoc));
-            parentCollectionProperties.put(BoxItem.FIELD_ETAG, boxService.getBoxEtag(parentDoc));
-            parentCollectionProperties.put(BoxItem.FIELD_NAME, boxService.getBoxName(parentDoc));
-            BoxTypedObject boxParent;
-            // This different instantiation is related to the param type
-            // which is automatically added in json payload by Box marshaller
-            // following the box object type
-            if (parentDoc.isFolder()) {
-                boxParent = new BoxFolder(Collections.unmodifiableMap(parentCollectionProperties));
-            } else {
-                boxParent = new BoxFile(Collections.unmodifiableMap(parentCollectionProperties));
-            }
-            pathCollection.add(boxParent);
-            parentDoc = session.getParentDocument(parentDoc.getRef());
+    /**
+     * @return the path collection entries, resolved once and shared by the parent and path_collection fields
+     */
+    protected List<BoxTypedObject> getAncestors() throws ClientException {
+        if (ancestors == null) {
+            ancestors = boxService.getBoxAncestors(doc.getCoreSession(), doc);
         }
-        return pathCollection;
+        return ancestors;
+    }
+
+    /**
+     * @return the box user related to the principal stored in the given property, 'system' if not set
+     */
+    protected BoxUser getBoxUser(String xpath) throws ClientException {
+        String username = doc.getPropertyValue(xpath) != null ? (String) doc.getPropertyValue(xpath) : "system";
+        return boxService.getBoxUser(username);
     }
 
     protected String[] getTags(CoreSession session) throws ClientException {
+        // Already loaded with the other documents of the page
+        final String[] cachedTags = BoxRequestCache.get().getTags().get(doc.getId());
+        if (cachedTags != null) {
+            return cachedTags;
+        }
         final TagService tagService = Framework.getLocalService(TagService.class);
         final List<Tag> tags = tagService.getDocumentTags(session, doc.getId(), session.getPrincipal().getName());
         final String[] tagNames = new String[tags.size()];
@@ -193,6 +260,7 @@ public abstract class BoxAdapter {
      */
     public void save(CoreSession session) throws ClientException, ParseException, InvocationTargetException,
             IllegalAccessException, BoxJSONException {
+        BoxItem boxItem = getBoxItem();
 
         setDescription(boxItem.getDescription());
         setCreator(boxItem.getOwnedBy().getId());
@@ -17,6 +17,7 @@
 package org.nuxeo.box.api.collaboration;
 
 import org.apache.commons.lang.RandomStringUtils;
+import org.nuxeo.box.api.BoxConstants;
 import org.nuxeo.box.api.adapter.BoxAdapter;
 import org.nuxeo.box.api.folder.adapter.BoxFolderAdapter;
 import org.nuxeo.box.api.marshalling.dao.BoxCollaboration;
@@ -24,6 +25,7 @@ import org.nuxeo.box.api.marshalling.dao.BoxUser;
 import org.nuxeo.box.api.marshalling.exceptions.BoxJSONException;
 import org.nuxeo.box.api.marshalling.exceptions.BoxRestException;
 import org.nuxeo.box.api.service.BoxService;
+import org.nuxeo.box.api.utils.BoxCompression;
 import org.nuxeo.ecm.core.api.ClientException;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
@@ -49,6 +51,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.InputStream;
 
 /**
  * WebObject for a Box Collaboration
@@ -56,7 +59,7 @@ import javax.ws.rs.core.Response;
  * @since 5.9.3
  */
 @WebObject(type = "collaborations")
-@Produces({ MediaType.APPLICATION_JSON })
+@Produces({ MediaType.APPLICATION_JSON, BoxConstants.APPLICATION_SMILE, BoxConstants.APPLICATION_CBOR })
 public class BoxCollaborationObject extends AbstractResource<ResourceTypeImpl> {
 
     BoxService boxService;
@@ -80,13 +83,13 @@ public class BoxCollaborationObject extends AbstractResource<ResourceTypeImpl> {
     }
 
     @GET
-    public String doGetCollaborations() throws NoSuchDocumentException, ClientException, BoxJSONException {
-        return boxService.toJSONString(boxFolder.getCollaborations());
+    public Object doGetCollaborations() throws NoSuchDocumentException, ClientException, BoxJSONException {
+        return BoxCompression.compress(ctx, "collaborations", boxService.getBoxEntity(boxFolder.getCollaborations()));
     }
 
     @GET
     @Path("/{collaborationId}")
-    public String doGetCollaboration(@PathParam("collaborationId") String collaborationId) throws ClientException,
+    public Object doGetCollaboration(@PathParam("collaborationId") String collaborationId) throws ClientException,
             BoxJSONException {
         CoreSession session = ctx.getCoreSession();
         String[] collaborationIds = boxService.getCollaborationArrayIds(collaborationId);
@@ -97,7 +100,7 @@ public class BoxCollaborationObject extends AbstractResource<ResourceTypeImpl> {
             throw new BoxRestException("There is no collaboration with id " + collaborationId,
                     Response.Status.NOT_FOUND.getStatusCode());
         }
-        return boxService.toJSONString(collaboration);
+        return BoxCompression.compress(ctx, "collaborations", boxService.getBoxEntity(collaboration));
     }
 
     /**
@@ -117,7 +120,7 @@ public class BoxCollaborationObject extends AbstractResource<ResourceTypeImpl> {
     }
 
     @POST
-    public String doPostCollaboration(String jsonBoxCollaboration) throws ClientException, BoxJSONException {
+    public Object doPostCollaboration(InputStream jsonBoxCollaboration) throws ClientException, BoxJSONException {
         final CoreSession session = ctx.getCoreSession();
         BoxCollaboration boxCollaboration = boxService.getBoxCollaboration(jsonBoxCollaboration);
         String documentId = boxCollaboration.getFolder().getId();
@@ -137,13 +140,14 @@ public class BoxCollaborationObject extends AbstractResource<ResourceTypeImpl> {
         session.save();
         // Return the new box collab json
         BoxFolderAdapter boxFolderUpdated = (BoxFolderAdapter) targetDocument.getAdapter(BoxAdapter.class);
-        return boxService.toJSONString(boxService.getBoxCollaboration(boxFolderUpdated, ace, collaborationId));
+        return BoxCompression.compress(ctx, "collaborations",
+                boxService.getBoxEntity(boxService.getBoxCollaboration(boxFolderUpdated, ace, collaborationId)));
     }
 
     @PUT
     @Path("/{collaborationId}")
-    public String doPutCollaboration(@PathParam("collaborationId") String collaborationId, String jsonBoxCollaboration)
-            throws ClientException, BoxJSONException {
+    public Object doPutCollaboration(@PathParam("collaborationId") String collaborationId,
+            InputStream jsonBoxCollaboration) throws ClientException, BoxJSONException {
         final CoreSession session = ctx.getCoreSession();
         BoxCollaboration boxCollaboration = boxService.getBoxCollaboration(jsonBoxCollaboration);
         String[] collaborationIds = boxService.getCollaborationArrayIds(collaborationId);
@@ -170,7 +174,8 @@ public class BoxCollaborationObject extends AbstractResource<ResourceTypeImpl> {
         session.save();
         // Return the new box collab json
         BoxFolderAdapter boxFolderUpdated = (BoxFolderAdapter) targetDocument.getAdapter(BoxAdapter.class);
-        return boxService.toJSONString(boxService.getBoxCollaboration(boxFolderUpdated, ace, collaborationIds[1]));
+        return BoxCompression.compress(ctx, "collaborations",
+                boxService.getBoxEntity(boxService.getBoxCollaboration(boxFolderUpdated, ace, collaborationIds[1])));
     }
 
 }
@@ -16,6 +16,7 @@
  */
 package org.nuxeo.box.api.comment;
 
+import org.nuxeo.box.api.BoxConstants;
 import org.nuxeo.box.api.adapter.BoxAdapter;
 import org.nuxeo.box.api.comment.adapter.BoxCommentAdapter;
 import org.nuxeo.box.api.file.adapter.BoxFileAdapter;
@@ -23,6 +24,7 @@ import org.nuxeo.box.api.marshalling.dao.BoxComment;
 import org.nuxeo.box.api.marshalling.exceptions.BoxJSONException;
 import org.nuxeo.box.api.marshalling.exceptions.BoxRestException;
 import org.nuxeo.box.api.service.BoxService;
+import org.nuxeo.box.api.utils.BoxCompression;
 import org.nuxeo.ecm.core.api.ClientException;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
@@ -45,6 +47,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.text.ParseException;
 import java.util.Date;
@@ -55,7 +58,7 @@ import java.util.Date;
  * @since 5.9.3
  */
 @WebObject(type = "comment")
-@Produces({ MediaType.APPLICATION_JSON })
+@Produces({ MediaType.APPLICATION_JSON, BoxConstants.APPLICATION_SMILE, BoxConstants.APPLICATION_CBOR })
 public class BoxCommentObject extends AbstractResource<ResourceTypeImpl> {
 
     BoxService boxService;
@@ -80,17 +83,17 @@ public class BoxCommentObject extends AbstractResource<ResourceTypeImpl> {
 
     @GET
     @Path("{commentId}")
-    public String doGetComment(@PathParam("commentId") final String commentId) throws NoSuchDocumentException,
+    public Object doGetComment(@PathParam("commentId") final String commentId) throws NoSuchDocumentException,
             ClientException, BoxJSONException {
         final CoreSession session = ctx.getCoreSession();
         final DocumentModel comment = session.getDocument(new IdRef(commentId));
         // Adapt nx document to box comment adapter
         final BoxCommentAdapter commentAdapter = comment.getAdapter(BoxCommentAdapter.class);
-        return boxService.toJSONString(commentAdapter.getBoxComment());
+        return BoxCompression.compress(ctx, "comments", boxService.getBoxEntity(commentAdapter.getBoxComment()));
     }
 
     @POST
-    public String doPostComment(String jsonBoxComment) throws NoSuchDocumentException, ClientException,
+    public Object doPostComment(InputStream jsonBoxComment) throws NoSuchDocumentException, ClientException,
             BoxJSONException {
         final CoreSession session = ctx.getCoreSession();
         BoxComment boxComment = boxService.getBoxComment(jsonBoxComment);
@@ -110,14 +113,14 @@ public class BoxCommentObject extends AbstractResource<ResourceTypeImpl> {
         DocumentModel newComment = commentableDocument.addComment(comment);
         newComment.attach(session.getSessionId());
         final BoxCommentAdapter commentAdapter = newComment.getAdapter(BoxCommentAdapter.class);
-        return boxService.toJSONString(commentAdapter.getBoxComment());
+        return BoxCompression.compress(ctx, "comments", boxService.getBoxEntity(commentAdapter.getBoxComment()));
     }
 
     @PUT
     @Path("{commentId}")
-    public String doPutComment(@PathParam("commentId") String commentId, String jsonBoxComment) throws ClientException,
-            BoxJSONException, ParseException, IllegalAccessException, InvocationTargetException,
-            NoSuchDocumentException {
+    public Object doPutComment(@PathParam("commentId") String commentId, InputStream jsonBoxComment)
+            throws ClientException, BoxJSONException, ParseException, IllegalAccessException,
+            InvocationTargetException, NoSuchDocumentException {
         final CoreSession session = ctx.getCoreSession();
         // Fetch the nx document comment
         final DocumentModel nxComment = session.getDocument(new IdRef(commentId));
@@ -129,7 +132,7 @@ public class BoxCommentObject extends AbstractResource<ResourceTypeImpl> {
         nxDocumentAdapter.setBoxComment(boxCommentUpdated);
         nxDocumentAdapter.save(session);
         // Return the new box comment json
-        return boxService.toJSONString(nxDocumentAdapter.getBoxComment());
+        return BoxCompression.compress(ctx, "comments", boxService.getBoxEntity(nxDocumentAdapter.getBoxComment()));
     }
 
     @DELETE
@@ -141,7 +144,7 @@ public class BoxCommentObject extends AbstractResource<ResourceTypeImpl> {
     }
 
     @GET
-    public String doGetComments() throws NoSuchDocumentException, ClientException, BoxJSONException {
-        return boxService.toJSONString(boxFile.getComments());
+    public Object doGetComments() throws NoSuchDocumentException, ClientException, BoxJSONException {
+        return BoxCompression.compress(ctx, "comments", boxService.getBoxEntity(boxFile.getComments()));
     }
 }
@@ -24,18 +24,16 @@ import org.nuxeo.box.api.marshalling.dao.BoxUser;
 import org.nuxeo.box.api.marshalling.exceptions.BoxJSONException;
 import org.nuxeo.box.api.marshalling.exceptions.BoxRestException;
 import org.nuxeo.box.api.service.BoxService;
-import org.joda.time.DateTime;
-import org.joda.time.format.ISODateTimeFormat;
+import org.nuxeo.box.api.utils.ISO8601DateCodec;
 import org.nuxeo.ecm.core.api.ClientException;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
-import org.nuxeo.ecm.core.api.NuxeoPrincipal;
 import org.nuxeo.ecm.platform.comment.api.CommentManager;
-import org.nuxeo.ecm.platform.usermanager.UserManager;
 import org.nuxeo.runtime.api.Framework;
 
 import java.lang.reflect.InvocationTargetException;
 import java.text.ParseException;
+import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -63,16 +61,14 @@ public class BoxCommentAdapter {
 
         boxProperties.put(BoxComment.FIELD_ID, doc.getId());
         boxProperties.put(BoxComment.FIELD_CREATED_AT,
-                ISODateTimeFormat.dateTime().print(new DateTime(doc.getPropertyValue("comment:creationDate"))));
+                ISO8601DateCodec.format((Calendar) doc.getPropertyValue("comment:creationDate")));
 
         // Nuxeo comment doesn't provide modified date
         boxProperties.put(BoxComment.FIELD_MODIFIED_AT,
-                ISODateTimeFormat.dateTime().print(new DateTime(doc.getPropertyValue("dc:modified"))));
+                ISO8601DateCodec.format((Calendar) doc.getPropertyValue("dc:modified")));
 
         // Comment Author
-        final UserManager userManager = Framework.getLocalService(UserManager.class);
-        final NuxeoPrincipal creator = userManager.getPrincipal((String) doc.getPropertyValue("comment:author"));
-        final BoxUser boxCreator = boxService.fillUser(creator);
+        final BoxUser boxCreator = boxService.getBoxUser((String) doc.getPropertyValue("comment:author"));
         boxProperties.put(BoxComment.FIELD_CREATED_BY, boxCreator);
 
         boxProperties.put(BoxComment.FIELD_MESSAGE, doc.getPropertyValue("comment:text"));
@@ -16,39 +16,82 @@
  */
 package org.nuxeo.box.api.file;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
+import java.net.URLEncoder;
 import java.text.ParseException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.OPTIONS;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.ext.Providers;
 
+import org.nuxeo.box.api.BoxConstants;
 import org.nuxeo.box.api.adapter.BoxAdapter;
 import org.nuxeo.box.api.file.adapter.BoxFileAdapter;
+import org.nuxeo.box.api.marshalling.dao.BoxCollection;
 import org.nuxeo.box.api.marshalling.dao.BoxFile;
+import org.nuxeo.box.api.marshalling.dao.BoxTypedObject;
+import org.nuxeo.box.api.marshalling.dao.BoxUploadPreflight;
 import org.nuxeo.box.api.marshalling.exceptions.BoxJSONException;
+import org.nuxeo.box.api.marshalling.exceptions.BoxRestException;
 import org.nuxeo.box.api.service.BoxService;
+import org.nuxeo.box.api.utils.BoxBlobOutput;
+import org.nuxeo.box.api.utils.BoxByteRange;
+import org.nuxeo.box.api.utils.BoxCompression;
+import org.nuxeo.box.api.utils.BoxDigestInputStream;
+import org.nuxeo.box.api.utils.Constants;
+import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.ecm.core.api.ClientException;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
 import org.nuxeo.ecm.core.api.IdRef;
+import org.nuxeo.ecm.core.api.PathRef;
+import org.nuxeo.ecm.core.api.VersioningOption;
+import org.nuxeo.ecm.core.api.impl.DocumentModelListImpl;
+import org.nuxeo.ecm.core.blob.BlobManager.BlobInfo;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+import org.nuxeo.ecm.core.blob.SimpleManagedBlob;
+import org.nuxeo.ecm.core.api.security.SecurityConstants;
 import org.nuxeo.ecm.core.model.NoSuchDocumentException;
+import org.nuxeo.ecm.core.versioning.VersioningService;
+import org.nuxeo.ecm.quota.size.QuotaAware;
 import org.nuxeo.ecm.webengine.model.WebObject;
 import org.nuxeo.ecm.webengine.model.impl.AbstractResource;
 import org.nuxeo.ecm.webengine.model.impl.ResourceTypeImpl;
 import org.nuxeo.runtime.api.Framework;
 
-import com.sun.jersey.multipart.FormDataParam;
+import com.sun.jersey.multipart.FormDataBodyPart;
+import com.sun.jersey.multipart.FormDataMultiPart;
 
 /**
  * WebObject for a Box File
@@ -56,9 +99,11 @@ import com.sun.jersey.multipart.FormDataParam;
  * @since 5.9.2
  */
 @WebObject(type = "file")
-@Produces({ MediaType.APPLICATION_JSON })
+@Produces({ MediaType.APPLICATION_JSON, BoxConstants.APPLICATION_SMILE, BoxConstants.APPLICATION_CBOR })
 public class BoxFileObject extends AbstractResource<ResourceTypeImpl> {
 
+    protected static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
     BoxService boxService;
 
     @Override
@@ -73,13 +118,97 @@ public class BoxFileObject extends AbstractResource<ResourceTypeImpl> {
 
     @GET
     @Path("{fileId}")
-    public String doGetFile(@PathParam("fileId") final String fileId) throws NoSuchDocumentException, ClientException,
-            BoxJSONException {
+    public Object doGetFile(@PathParam("fileId") final String fileId, @QueryParam("fields") String fields)
+            throws NoSuchDocumentException, ClientException, BoxJSONException {
         final CoreSession session = ctx.getCoreSession();
         final DocumentModel file = session.getDocument(new IdRef(fileId));
         // Adapt nx document to box folder adapter
         final BoxFileAdapter fileAdapter = (BoxFileAdapter) file.getAdapter(BoxAdapter.class);
-        return boxService.toJSONString(fileAdapter.getBoxItem());
+        return BoxCompression.compress(ctx, "files", boxService.getBoxEntity(fileAdapter.getBoxItem(fields)));
+    }
+
+    /**
+     * Downloads the content of the file, or the single byte range of the Range header. The range is ignored if the
+     * If-Range header does not match the entity tag or last modification date of the content.
+     *
+     * @since 7.3
+     */
+    @GET
+    @Path("{fileId}/content")
+    @Produces(MediaType.WILDCARD)
+    public Response doGetFileContent(@PathParam("fileId") String fileId,
+            @HeaderParam(Constants.RANGE) String range, @HeaderParam(Constants.IF_RANGE) String ifRange)
+            throws ClientException {
+        final CoreSession session = ctx.getCoreSession();
+        final DocumentModel file = session.getDocument(new IdRef(fileId));
+        Blob blob = file.hasSchema("file") ? (Blob) file.getPropertyValue("file:content") : null;
+        if (blob == null) {
+            throw new BoxRestException("No content for file " + fileId, Response.Status.NOT_FOUND.getStatusCode());
+        }
+        String etag = blob.getDigest() != null ? "\"" + blob.getDigest() + "\"" : null;
+        Calendar modified = (Calendar) file.getPropertyValue("dc:modified");
+        long length = blob.getLength();
+        BoxByteRange byteRange = length >= 0 && isRangeValid(ifRange, etag, modified) ? BoxByteRange.parse(range,
+                length) : null;
+        ResponseBuilder builder;
+        if (byteRange == null) {
+            builder = Response.ok(new BoxBlobOutput(blob, 0, length));
+            if (length >= 0) {
+                builder.header(HttpHeaders.CONTENT_LENGTH, length);
+            }
+        } else if (byteRange.isSatisfiable()) {
+            builder = Response.status(BoxConstants.STATUS_PARTIAL_CONTENT).entity(
+                    new BoxBlobOutput(blob, byteRange.getFirst(), byteRange.getCount())).header(
+                    Constants.CONTENT_RANGE, byteRange.getContentRange()).header(HttpHeaders.CONTENT_LENGTH,
+                    byteRange.getCount());
+        } else {
+            return Response.status(BoxConstants.STATUS_REQUESTED_RANGE_NOT_SATISFIABLE).header(
+                    Constants.CONTENT_RANGE, BoxByteRange.getUnsatisfiedContentRange(length)).build();
+        }
+        builder.type(blob.getMimeType() != null ? blob.getMimeType() : MediaType.APPLICATION_OCTET_STREAM);
+        builder.header(Constants.ACCEPT_RANGES, BoxByteRange.BYTES);
+        if (etag != null) {
+            builder.header(HttpHeaders.ETAG, etag);
+        }
+        if (modified != null) {
+            builder.lastModified(modified.getTime());
+        }
+        if (blob.getFilename() != null) {
+            builder.header(Constants.CONTENT_DISPOSITION, getContentDisposition(blob.getFilename()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return true if there is no If-Range header, or if it is the entity tag or last modification date of the content
+     */
+    protected static boolean isRangeValid(String ifRange, String etag, Calendar modified) {
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Weak entity tags never match
+            return ifRange.equals(etag);
+        }
+        if (modified == null) {
+            return false;
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return date.toEpochSecond() == modified.getTimeInMillis() / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    protected static String getContentDisposition(String filename) {
+        String disposition = "attachment; filename=\"" + filename.replaceAll("[\"\\\\\\p{Cntrl}]", "_") + "\"";
+        try {
+            return disposition + "; filename*=UTF-8''" + URLEncoder.encode(filename, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            return disposition;
+        }
     }
 
     @DELETE
@@ -92,7 +221,7 @@ public class BoxFileObject extends AbstractResource<ResourceTypeImpl> {
 
     @PUT
     @Path("{fileId}")
-    public String doUpdateFile(@PathParam("fileId") String fileId, String jsonBoxFile) throws ClientException,
+    public Object doUpdateFile(@PathParam("fileId") String fileId, InputStream jsonBoxFile) throws ClientException,
             BoxJSONException, ParseException, IllegalAccessException, InvocationTargetException {
         final CoreSession session = ctx.getCoreSession();
         // Fetch the nx document with given id
@@ -105,31 +234,371 @@ public class BoxFileObject extends AbstractResource<ResourceTypeImpl> {
         nxDocumentAdapter.setBoxItem(boxFileUpdated);
         nxDocumentAdapter.save(session);
         // Return the new box File json
-        return boxService.toJSONString(nxDocumentAdapter.getBoxItem());
+        return BoxCompression.compress(ctx, "files", boxService.getBoxEntity(nxDocumentAdapter.getBoxItem()));
     }
 
+    /**
+     * Creates the files of the upload form in the folder of its parent_id. A single file part is named by the filename
+     * field and answered with the new file. Many file parts are named by their own file names and answered with the
+     * collection of the new mini files: the folder is resolved once and the documents are saved together.
+     */
     @POST
     @Path("content")
     @Consumes(MediaType.MULTIPART_FORM_DATA)
-    public String doPostFile(@FormDataParam("file") InputStream uploadedInputStream,
-            @FormDataParam("filename") String fileName, @FormDataParam("parent_id") String parentId)
-            throws ClientException, BoxJSONException, IOException {
-        // Fetching its parent to get parent id
+    public Object doPostFile(@HeaderParam(Constants.CONTENT_MD5) String contentMd5,
+            @HeaderParam(Constants.CONTENT_SHA1) String contentSha1, FormDataMultiPart form) throws ClientException,
+            BoxJSONException, IOException {
         final CoreSession session = ctx.getCoreSession();
-        DocumentModel documentParent;
-        if ("0".equals(parentId)) {
-            documentParent = session.getRootDocument();
+        try {
+            String fileName = getFieldValue(form, "filename");
+            String parentId = getFieldValue(form, "parent_id");
+            List<FormDataBodyPart> fileParts = form.getFields("file");
+            if (fileParts == null || fileParts.isEmpty() || fileParts.size() == 1) {
+                DocumentModel newFile;
+                if (fileParts == null || fileParts.isEmpty()) {
+                    newFile = createFileDocumentByReference(session, parentId, fileName,
+                            contentSha1 != null ? contentSha1 : contentMd5);
+                } else {
+                    FormDataBodyPart filePart = fileParts.get(0);
+                    newFile = createFileDocument(session, getParentDocument(session, parentId),
+                            fileName != null ? fileName : filePart.getContentDisposition().getFileName(), filePart,
+                            contentMd5 != null ? contentMd5 : filePart.getHeaders().getFirst(Constants.CONTENT_MD5),
+                            contentSha1 != null ? contentSha1 : filePart.getHeaders().getFirst(
+                                    Constants.CONTENT_SHA1));
+                }
+                // Adapt nx document to box folder adapter
+                final BoxFileAdapter fileAdapter = (BoxFileAdapter) newFile.getAdapter(BoxAdapter.class);
+                // Return the new box folder json
+                return BoxCompression.compress(ctx, "files", boxService.getBoxEntity(fileAdapter.getBoxItem()));
+            }
+            DocumentModel documentParent = getParentDocument(session, parentId);
+            DocumentModelList newFiles = new DocumentModelListImpl(fileParts.size());
+            for (FormDataBodyPart filePart : fileParts) {
+                String partFileName = filePart.getContentDisposition().getFileName();
+                if (partFileName == null) {
+                    throw new BoxRestException("Each file part requires a file name",
+                            Response.Status.BAD_REQUEST.getStatusCode());
+                }
+                newFiles.add(createFileDocument(session, documentParent, partFileName, filePart,
+                        filePart.getHeaders().getFirst(Constants.CONTENT_MD5),
+                        filePart.getHeaders().getFirst(Constants.CONTENT_SHA1)));
+            }
+            session.save();
+            Map<String, Object> collectionProperties = new HashMap<>();
+            collectionProperties.put(BoxCollection.FIELD_ENTRIES, boxService.getBoxDocumentCollection(newFiles, null));
+            collectionProperties.put(BoxCollection.FIELD_TOTAL_COUNT, newFiles.size());
+            return BoxCompression.compress(ctx, "files", Response.status(Response.Status.CREATED).entity(
+                    boxService.getBoxEntity(new BoxCollection(collectionProperties))).build());
+        } finally {
+            form.cleanup();
+        }
+    }
+
+    protected static String getFieldValue(FormDataMultiPart form, String name) {
+        FormDataBodyPart field = form.getField(name);
+        return field != null ? field.getValue() : null;
+    }
+
+    /**
+     * @return the blob spooled from the stream, checked against the digest headers. The spooled content is deleted
+     *         on a mismatch.
+     * @since 7.3
+     */
+    protected static Blob createVerifiedBlob(BoxDigestInputStream digestStream, String contentMd5,
+            String contentSha1) throws IOException {
+        Blob blob = Blobs.createBlob(digestStream);
+        try {
+            digestStream.verify(contentMd5, contentSha1);
+        } catch (BoxRestException e) {
+            deleteSpooledBlob(blob);
+            throw e;
+        }
+        return blob;
+    }
+
+    /**
+     * Delete the file a rejected content was spooled to.
+     *
+     * @since 7.3
+     */
+    protected static void deleteSpooledBlob(Blob blob) {
+        File file = blob.getFile();
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * @return the nx document of a new file with the content of the file part, checked against its digests
+     * @since 7.3
+     */
+    protected static DocumentModel createFileDocument(CoreSession session, DocumentModel documentParent,
+            String fileName, FormDataBodyPart filePart, String contentMd5, String contentSha1)
+            throws ClientException, IOException {
+        // Digest the content while it is spooled, and check it before any document is created
+        BoxDigestInputStream digestStream = new BoxDigestInputStream(filePart.getEntityAs(InputStream.class));
+        Blob blob = createVerifiedBlob(digestStream, contentMd5, contentSha1);
+        return createFileDocument(session, documentParent, fileName, blob, digestStream.getMd5(),
+                digestStream.getSha1());
+    }
+
+    /**
+     * Uploads a new version of the content of the file, the previous one being kept as a version. The If-Match header
+     * and the permissions are checked before the upload form is read, so that a client waiting for a 100 Continue does
+     * not send a rejected content. The If-Match header is checked again once the content is spooled, as the file may
+     * have been updated meanwhile.
+     *
+     * @since 7.3
+     */
+    @POST
+    @Path("{fileId}/content")
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    public Object doPostFileVersion(@PathParam("fileId") String fileId,
+            @HeaderParam(Constants.IF_MATCH) String ifMatch, @HeaderParam(Constants.CONTENT_MD5) String contentMd5,
+            @HeaderParam(Constants.CONTENT_SHA1) String contentSha1, @Context HttpHeaders headers,
+            @Context Providers providers, InputStream uploadForm) throws ClientException, BoxJSONException,
+            IOException {
+        final CoreSession session = ctx.getCoreSession();
+        DocumentModel file = session.getDocument(new IdRef(fileId));
+        if (!file.hasSchema("file")) {
+            throw new BoxRestException("No content for file " + fileId, Response.Status.NOT_FOUND.getStatusCode());
+        }
+        if (!isEtagMatching(ifMatch, boxService.getBoxEtag(file))) {
+            throw new BoxRestException("The file has been modified since " + ifMatch,
+                    Response.Status.PRECONDITION_FAILED.getStatusCode());
+        }
+        if (!session.hasPermission(file.getRef(), SecurityConstants.WRITE)) {
+            throw new BoxRestException("Access denied to the file " + fileId,
+                    Response.Status.FORBIDDEN.getStatusCode());
+        }
+        // Only now is the content read
+        MediaType mediaType = headers.getMediaType();
+        FormDataMultiPart form = providers.getMessageBodyReader(FormDataMultiPart.class, FormDataMultiPart.class,
+                NO_ANNOTATIONS, mediaType).readFrom(FormDataMultiPart.class, FormDataMultiPart.class, NO_ANNOTATIONS,
+                mediaType, headers.getRequestHeaders(), uploadForm);
+        try {
+            FormDataBodyPart filePart = form.getField("file");
+            if (filePart == null) {
+                throw new BoxRestException("file is required", Response.Status.BAD_REQUEST.getStatusCode());
+            }
+            BoxDigestInputStream digestStream = new BoxDigestInputStream(filePart.getEntityAs(InputStream.class));
+            Blob blob = createVerifiedBlob(digestStream, contentMd5, contentSha1);
+            // Another upload may have been saved while this one was spooled
+            file = session.getDocument(file.getRef());
+            if (!isEtagMatching(ifMatch, boxService.getBoxEtag(file))) {
+                deleteSpooledBlob(blob);
+                throw new BoxRestException("The file has been modified since " + ifMatch,
+                        Response.Status.PRECONDITION_FAILED.getStatusCode());
+            }
+            // The current state is not a version yet if it was modified since the last check in
+            if (file.isCheckedOut()) {
+                session.checkIn(file.getRef(), VersioningOption.MINOR, null);
+                file = session.getDocument(file.getRef());
+            }
+            Blob previous = (Blob) file.getPropertyValue("file:content");
+            blob.setFilename(previous != null && previous.getFilename() != null ? previous.getFilename()
+                    : file.getName());
+            setFileContent(file, blob, digestStream.getMd5(), digestStream.getSha1());
+            // Checked in once saved, which changes the etag
+            file.putContextData(VersioningService.VERSIONING_OPTION, VersioningOption.MINOR);
+            file = session.saveDocument(file);
+            session.save();
+        } finally {
+            form.cleanup();
+        }
+        return BoxCompression.compress(ctx, "files", Response.status(Response.Status.CREATED).entity(
+                boxService.getBoxEntity(getBoxFileCollection(Collections.singletonList(file)))).build());
+    }
+
+    /**
+     * @return true if there is no If-Match header, or if it is * or lists the etag, quoted or not
+     */
+    protected static boolean isEtagMatching(String ifMatch, String etag) {
+        if (ifMatch == null) {
+            return true;
+        }
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if ("*".equals(tag) || tag.equals(etag) || tag.equals("\"" + etag + "\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the collection of the box items of the files
+     * @since 7.3
+     */
+    protected static BoxCollection getBoxFileCollection(List<DocumentModel> files) throws ClientException {
+        ArrayList<BoxTypedObject> entries = new ArrayList<>(files.size());
+        for (DocumentModel file : files) {
+            // Adapt nx document to box file adapter
+            entries.add(((BoxFileAdapter) file.getAdapter(BoxAdapter.class)).getBoxItem());
+        }
+        Map<String, Object> collectionProperties = new HashMap<>();
+        collectionProperties.put(BoxCollection.FIELD_ENTRIES, entries);
+        collectionProperties.put(BoxCollection.FIELD_TOTAL_COUNT, entries.size());
+        return new BoxCollection(collectionProperties);
+    }
+
+    /**
+     * Checks that a file can be uploaded before its content is sent: the parent folder must accept new children, no
+     * item of the folder may have the same name, and the size must fit in the quotas of the folder. If the sha1 of
+     * the body is the SHA-1 or Nuxeo digest of a content readable by the user, the file can be created by posting the
+     * upload form with this digest and without its file part.
+     *
+     * @since 7.3
+     */
+    @OPTIONS
+    @Path("content")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Object doPreflightFile(InputStream jsonBoxFile) throws ClientException, BoxJSONException {
+        BoxFile boxFile = boxService.getBoxFile(jsonBoxFile);
+        String fileName = boxFile.getName();
+        if (fileName == null || boxFile.getParent() == null || boxFile.getParent().getId() == null) {
+            throw new BoxRestException("name and parent are required", Response.Status.BAD_REQUEST.getStatusCode());
+        }
+        final CoreSession session = ctx.getCoreSession();
+        checkNewFile(session, boxFile.getParent().getId(), fileName, boxFile.getSize());
+        BoxUploadPreflight preflight = new BoxUploadPreflight();
+        preflight.setUploadUrl(ctx.getURL());
+        preflight.setUploadToken(null);
+        String sha1 = boxFile.getSha1();
+        preflight.setContentExists(sha1 != null
+                && boxService.getBoxContentDocument(session, BoxDigestInputStream.decode(sha1)) != null);
+        return BoxCompression.compress(ctx, "files", boxService.getBoxEntity(preflight));
+    }
+
+    /**
+     * Fails if the user cannot add a file of the given name, and of the given size if known, to the parent folder.
+     *
+     * @since 7.3
+     */
+    protected static void checkNewFile(CoreSession session, String parentId, String fileName, Double size)
+            throws ClientException {
+        DocumentModel documentParent = getParentDocument(session, parentId);
+        if (!session.hasPermission(documentParent.getRef(), SecurityConstants.ADD_CHILDREN)) {
+            throw new BoxRestException("Access denied to the folder " + parentId,
+                    Response.Status.FORBIDDEN.getStatusCode());
+        }
+        if (session.exists(new PathRef(documentParent.getPathAsString(), fileName))) {
+            throw new BoxRestException("Item with the same name already exists: " + fileName,
+                    Response.Status.CONFLICT.getStatusCode());
+        }
+        if (size != null) {
+            checkQuota(session, documentParent, size.longValue());
+        }
+    }
+
+    /**
+     * Fails if the size does not fit in the maximum quota of the folder or of one of its ancestors.
+     *
+     * @since 7.3
+     */
+    protected static void checkQuota(CoreSession session, DocumentModel folder, long size) throws ClientException {
+        if (Framework.getRuntime().getBundle("org.nuxeo.ecm.quota.core") == null) {
+            return;
+        }
+        for (DocumentModel doc : session.getParentDocuments(folder.getRef())) {
+            QuotaAware quotaAware = doc.getAdapter(QuotaAware.class);
+            if (quotaAware != null && quotaAware.getMaxQuota() > 0
+                    && quotaAware.getTotalSize() + size > quotaAware.getMaxQuota()) {
+                throw new BoxRestException("Storage limit exceeded in " + doc.getName(),
+                        Response.Status.FORBIDDEN.getStatusCode());
+            }
+        }
+    }
+
+    /**
+     * @return the nx document of a new file sharing the content of a document readable in the session, without any
+     *         transfer of its bytes
+     * @since 7.3
+     */
+    protected DocumentModel createFileDocumentByReference(CoreSession session, String parentId, String fileName,
+            String digest) throws ClientException, IOException {
+        if (digest == null) {
+            throw new BoxRestException("A file or the digest of a known content is required",
+                    Response.Status.BAD_REQUEST.getStatusCode());
+        }
+        DocumentModel source = boxService.getBoxContentDocument(session, BoxDigestInputStream.decode(digest));
+        if (source == null) {
+            throw new BoxRestException("No content with digest " + digest, Response.Status.NOT_FOUND.getStatusCode());
+        }
+        Blob blob = getBlobReference((Blob) source.getPropertyValue("file:content"), fileName);
+        String sha1 = boxService.getBoxSha1(source);
+        return createFileDocument(session, parentId, fileName, blob, blob.getDigest(),
+                sha1.equals(blob.getDigest()) ? null : sha1);
+    }
+
+    /**
+     * @return a new blob with its own file name over the binary of the given blob, which is left untouched
+     * @since 7.3
+     */
+    protected static Blob getBlobReference(Blob source, String fileName) throws IOException {
+        Blob blob;
+        if (source instanceof ManagedBlob) {
+            // Stored under the same key, without any transfer of its bytes
+            ManagedBlob managedBlob = (ManagedBlob) source;
+            BlobInfo blobInfo = new BlobInfo();
+            blobInfo.key = managedBlob.getKey();
+            blobInfo.mimeType = managedBlob.getMimeType();
+            blobInfo.encoding = managedBlob.getEncoding();
+            blobInfo.length = managedBlob.getLength();
+            blobInfo.digest = managedBlob.getDigest();
+            blob = new SimpleManagedBlob(blobInfo);
         } else {
-            documentParent = session.getDocument(new IdRef(parentId));
+            blob = Blobs.createBlob(source.getStream(), source.getMimeType(), source.getEncoding());
         }
+        blob.setFilename(fileName);
+        return blob;
+    }
+
+    /**
+     * @param md5 the hex MD5 digest of the content, or null if it was not computed on upload
+     * @param sha1 the hex SHA-1 digest of the content, or null if it was not computed on upload
+     * @return the nx document of a new file with the given content
+     * @since 7.3
+     */
+    protected static DocumentModel createFileDocument(CoreSession session, String parentId, String fileName,
+            Blob blob, String md5, String sha1) throws ClientException {
+        // Fetching its parent to get parent id
+        return createFileDocument(session, getParentDocument(session, parentId), fileName, blob, md5, sha1);
+    }
+
+    /**
+     * @return the nx document of a new file with the given content in the parent document
+     * @since 7.3
+     */
+    protected static DocumentModel createFileDocument(CoreSession session, DocumentModel documentParent,
+            String fileName, Blob blob, String md5, String sha1) throws ClientException {
         // Create the nx document from box item information
         DocumentModel newFile = session.createDocumentModel(documentParent.getPathAsString(), fileName, "File");
-        newFile.setPropertyValue("file:content", (Serializable) Blobs.createBlob(uploadedInputStream));
-        newFile = session.createDocument(newFile);
-        // Adapt nx document to box folder adapter
-        final BoxFileAdapter fileAdapter = (BoxFileAdapter) newFile.getAdapter(BoxAdapter.class);
-        // Return the new box folder json
-        return boxService.toJSONString(fileAdapter.getBoxItem());
+        setFileContent(newFile, blob, md5, sha1);
+        return session.createDocument(newFile);
+    }
+
+    protected static void setFileContent(DocumentModel file, Blob blob, String md5, String sha1)
+            throws ClientException {
+        file.setPropertyValue("file:content", (Serializable) blob);
+        if (sha1 != null) {
+            // Keep the Box SHA-1 with the MD5 it was computed along, to detect a later content change
+            file.addFacet(BoxConstants.BOX_CONTENT_FACET);
+            file.setPropertyValue(BoxConstants.BOX_CONTENT_SHA1, sha1);
+            file.setPropertyValue(BoxConstants.BOX_CONTENT_MD5, md5);
+        }
+    }
+
+    protected static DocumentModel getParentDocument(CoreSession session, String parentId) throws ClientException {
+        if ("0".equals(parentId)) {
+            return session.getRootDocument();
+        }
+        return session.getDocument(new IdRef(parentId));
+    }
+
+    @Path("upload_sessions")
+    public Object doGetUploadSessions() {
+        return newObject("upload_session");
     }
 
     @Path("{fileId}/comments")
@@ -0,0 +1,140 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.file;
+
+import org.nuxeo.box.api.BoxConstants;
+import org.nuxeo.box.api.marshalling.dao.BoxUploadPart;
+import org.nuxeo.box.api.marshalling.dao.BoxUploadSession;
+import org.nuxeo.box.api.marshalling.exceptions.BoxJSONException;
+import org.nuxeo.box.api.marshalling.exceptions.BoxRestException;
+import org.nuxeo.box.api.service.BoxService;
+import org.nuxeo.box.api.service.BoxUploadSessions;
+import org.nuxeo.box.api.utils.BoxCompression;
+import org.nuxeo.box.api.utils.Constants;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.ClientException;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.webengine.model.WebObject;
+import org.nuxeo.ecm.webengine.model.impl.AbstractResource;
+import org.nuxeo.ecm.webengine.model.impl.ResourceTypeImpl;
+import org.nuxeo.runtime.api.Framework;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * WebObject for the Box upload sessions: a session is created for a new file, its parts are put with their
+ * Content-Range, possibly in parallel, then it is committed as the new file.
+ *
+ * @since 7.3
+ */
+@WebObject(type = "upload_session")
+@Produces({ MediaType.APPLICATION_JSON, BoxConstants.APPLICATION_SMILE, BoxConstants.APPLICATION_CBOR })
+public class BoxUploadSessionObject extends AbstractResource<ResourceTypeImpl> {
+
+    BoxService boxService;
+
+    @Override
+    public void initialize(Object... args) {
+        boxService = Framework.getLocalService(BoxService.class);
+    }
+
+    @POST
+    public Object doPostUploadSession(InputStream jsonBoxUploadSession) throws ClientException, BoxJSONException,
+            IOException {
+        BoxUploadSession boxUploadSession = boxService.getBoxUploadSession(jsonBoxUploadSession);
+        String folderId = boxUploadSession.getFolderId();
+        Long fileSize = boxUploadSession.getFileSize();
+        if (folderId == null || boxUploadSession.getFileName() == null || fileSize == null || fileSize < 0) {
+            throw new BoxRestException("folder_id, file_name and file_size are required",
+                    Response.Status.BAD_REQUEST.getStatusCode());
+        }
+        // Fails before any part is uploaded
+        BoxFileObject.checkNewFile(ctx.getCoreSession(), folderId, boxUploadSession.getFileName(),
+                fileSize.doubleValue());
+        BoxUploadSession newSession = getUploadSessions().create(getUser(), folderId,
+                boxUploadSession.getFileName(), fileSize);
+        return BoxCompression.compress(ctx, "files",
+                Response.status(Response.Status.CREATED).entity(boxService.getBoxEntity(newSession)).build());
+    }
+
+    @GET
+    @Path("{sessionId}")
+    public Object doGetUploadSession(@PathParam("sessionId") String sessionId) throws BoxJSONException,
+            IOException {
+        return BoxCompression.compress(ctx, "files",
+                boxService.getBoxEntity(getUploadSessions().getSession(getUser(), sessionId)));
+    }
+
+    @PUT
+    @Path("{sessionId}")
+    public Object doPutPart(@PathParam("sessionId") String sessionId,
+            @HeaderParam(Constants.CONTENT_RANGE) String contentRange, @HeaderParam(Constants.DIGEST) String digest,
+            InputStream part) throws BoxJSONException, IOException {
+        BoxUploadPart uploadPart = getUploadSessions().uploadPart(getUser(), sessionId, contentRange, digest, part);
+        return BoxCompression.compress(ctx, "files", boxService.getBoxEntity(uploadPart));
+    }
+
+    @POST
+    @Path("{sessionId}/commit")
+    public Object doCommit(@PathParam("sessionId") String sessionId, @HeaderParam(Constants.DIGEST) String digest,
+            InputStream jsonBoxUploadSession) throws ClientException, BoxJSONException, IOException {
+        BoxUploadSessions uploadSessions = getUploadSessions();
+        BoxUploadSession boxUploadSession = uploadSessions.getSession(getUser(), sessionId);
+        // The parts of the body, if any, must be the uploaded ones
+        List<BoxUploadPart> parts = null;
+        if (ctx.getRequest().getContentLength() != 0) {
+            parts = boxService.getBoxUploadSession(jsonBoxUploadSession).getParts();
+        }
+        Blob blob = uploadSessions.commit(getUser(), sessionId, parts, digest);
+        final CoreSession session = ctx.getCoreSession();
+        DocumentModel newFile = BoxFileObject.createFileDocument(session, boxUploadSession.getFolderId(),
+                boxUploadSession.getFileName(), blob, null, null);
+        session.save();
+        uploadSessions.remove(getUser(), sessionId);
+        return BoxCompression.compress(ctx, "files", Response.status(Response.Status.CREATED).entity(
+                boxService.getBoxEntity(BoxFileObject.getBoxFileCollection(Collections.singletonList(newFile))))
+                .build());
+    }
+
+    @DELETE
+    @Path("{sessionId}")
+    public void doAbort(@PathParam("sessionId") String sessionId) throws IOException {
+        getUploadSessions().remove(getUser(), sessionId);
+    }
+
+    protected BoxUploadSessions getUploadSessions() {
+        return boxService.getUploadSessions();
+    }
+
+    protected String getUser() {
+        return ctx.getPrincipal().getName();
+    }
+}
@@ -24,16 +24,11 @@ import org.nuxeo.box.api.marshalling.dao.BoxComment;
 import org.nuxeo.box.api.marshalling.dao.BoxFile;
 import org.nuxeo.box.api.marshalling.dao.BoxItem;
 import org.nuxeo.box.api.marshalling.dao.BoxLock;
-import org.nuxeo.box.api.marshalling.dao.BoxUser;
-import org.joda.time.DateTime;
-import org.joda.time.format.ISODateTimeFormat;
-import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.box.api.utils.ISO8601DateCodec;
 import org.nuxeo.ecm.core.api.ClientException;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.Lock;
-import org.nuxeo.ecm.core.api.NuxeoPrincipal;
 import org.nuxeo.ecm.platform.comment.api.CommentManager;
-import org.nuxeo.ecm.platform.usermanager.UserManager;
 import org.nuxeo.runtime.api.Framework;
 
 import java.util.ArrayList;
@@ -49,46 +44,59 @@ import java.util.Map;
  */
 public class BoxFileAdapter extends BoxAdapter {
 
+    protected static final List<String> FILE_FIELDS = new ArrayList<>(ITEM_FIELDS);
+
+    static {
+        FILE_FIELDS.add(BoxFile.FIELD_SHA1);
+        FILE_FIELDS.add(BoxConstants.BOX_LOCK);
+    }
+
     /**
-     * Instantiate the adapter and the Box File from Nuxeo Document and load its properties into json format
+     * Instantiate the adapter, the Box File properties are loaded on demand
      */
     public BoxFileAdapter(DocumentModel doc) throws ClientException {
         super(doc);
+    }
 
-        // MD5
-        Blob blob = (Blob) doc.getPropertyValue("file:content");
-        if (blob != null) {
-            boxProperties.put(BoxFile.FIELD_SHA1, blob.getDigest());
-        }
+    @Override
+    protected List<String> getFieldNames() {
+        return FILE_FIELDS;
+    }
 
-        // Lock
-        Map<String, Object> boxLockProperties = new HashMap<>();
-        Lock lockInfo = doc.getLockInfo();
-        if (lockInfo != null) {
+    @Override
+    protected BoxItem newBoxItem(Map<String, Object> properties) {
+        return new BoxFile(properties);
+    }
+
+    @Override
+    protected Object computeProperty(String field) throws ClientException {
+        switch (field) {
+        case BoxFile.FIELD_SHA1:
+            return boxService.getBoxSha1(doc);
+        case BoxConstants.BOX_LOCK:
+            Lock lockInfo = doc.getLockInfo();
+            if (lockInfo == null) {
+                return null;
+            }
+            Map<String, Object> boxLockProperties = new HashMap<>();
             boxLockProperties.put(BoxItem.FIELD_ID, null);
-            final UserManager userManager = Framework.getLocalService(UserManager.class);
-            final NuxeoPrincipal lockCreator = userManager.getPrincipal(lockInfo.getOwner());
-            final BoxUser boxLockCreator = boxService.fillUser(lockCreator);
-            boxLockProperties.put(BoxItem.FIELD_CREATED_BY, boxLockCreator);
-            boxLockProperties.put(BoxItem.FIELD_CREATED_AT,
-                    ISODateTimeFormat.dateTime().print(new DateTime(lockInfo.getCreated())));
+            boxLockProperties.put(BoxItem.FIELD_CREATED_BY, boxService.getBoxUser(lockInfo.getOwner()));
+            boxLockProperties.put(BoxItem.FIELD_CREATED_AT, ISO8601DateCodec.format(lockInfo.getCreated()));
             boxLockProperties.put(BoxLock.FIELD_EXPIRES_AT, null);
             boxLockProperties.put(BoxLock.FIELD_IS_DOWNLOAD_PREVENTED, false);
-            BoxLock boxLock = new BoxLock(boxLockProperties);
-            boxProperties.put(BoxConstants.BOX_LOCK, boxLock);
+            return new BoxLock(boxLockProperties);
+        default:
+            return super.computeProperty(field);
         }
-
-        boxItem = new BoxFile(Collections.unmodifiableMap(boxProperties));
-
     }
 
     @Override
     public BoxItem getMiniItem() {
         Map<String, Object> boxProperties = new HashMap<>();
-        boxProperties.put(BoxItem.FIELD_ID, boxItem.getId());
-        boxProperties.put(BoxItem.FIELD_SEQUENCE_ID, boxItem.getSequenceId());
-        boxProperties.put(BoxItem.FIELD_NAME, boxItem.getName());
-        boxProperties.put(BoxItem.FIELD_ETAG, boxItem.getEtag());
+        boxProperties.put(BoxItem.FIELD_ID, getProperty(BoxItem.FIELD_ID));
+        boxProperties.put(BoxItem.FIELD_SEQUENCE_ID, getProperty(BoxItem.FIELD_SEQUENCE_ID));
+        boxProperties.put(BoxItem.FIELD_NAME, getProperty(BoxItem.FIELD_NAME));
+        boxProperties.put(BoxItem.FIELD_ETAG, getProperty(BoxItem.FIELD_ETAG));
         return new BoxFile(boxProperties);
     }
 
@@ -17,13 +17,13 @@
  */
 package org.nuxeo.box.api.folder;
 
+import org.nuxeo.box.api.BoxConstants;
 import org.nuxeo.box.api.adapter.BoxAdapter;
 import org.nuxeo.box.api.folder.adapter.BoxFolderAdapter;
 import org.nuxeo.box.api.marshalling.dao.BoxFolder;
 import org.nuxeo.box.api.marshalling.exceptions.BoxJSONException;
-import org.nuxeo.box.api.marshalling.jsonparsing.BoxJSONParser;
-import org.nuxeo.box.api.marshalling.jsonparsing.BoxResourceHub;
 import org.nuxeo.box.api.service.BoxService;
+import org.nuxeo.box.api.utils.BoxCompression;
 import org.nuxeo.ecm.core.api.ClientException;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
@@ -41,7 +41,9 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.text.ParseException;
 
@@ -51,7 +53,7 @@ import java.text.ParseException;
  * @since 5.9.2
  */
 @WebObject(type = "folder")
-@Produces({ MediaType.APPLICATION_JSON })
+@Produces({ MediaType.APPLICATION_JSON, BoxConstants.APPLICATION_SMILE, BoxConstants.APPLICATION_CBOR })
 public class BoxFolderObject extends AbstractResource<ResourceTypeImpl> {
 
     BoxService boxService;
@@ -68,18 +70,18 @@ public class BoxFolderObject extends AbstractResource<ResourceTypeImpl> {
 
     @GET
     @Path("{folderId}")
-    public String doGetFolder(@PathParam("folderId") final String folderId) throws NoSuchDocumentException,
-            ClientException, BoxJSONException {
+    public Object doGetFolder(@PathParam("folderId") final String folderId, @QueryParam("fields") String fields)
+            throws NoSuchDocumentException, ClientException, BoxJSONException {
         final CoreSession session = ctx.getCoreSession();
         final DocumentModel folder = "0".equals(folderId) ? session.getRootDocument() : session.getDocument(new IdRef(
                 folderId));
         // Adapt nx document to box folder adapter
         final BoxFolderAdapter folderAdapter = (BoxFolderAdapter) folder.getAdapter(BoxAdapter.class);
-        return boxService.toJSONString(folderAdapter.getBoxItem());
+        return BoxCompression.compress(ctx, "folders", boxService.getBoxEntity(folderAdapter.getBoxItem(fields)));
     }
 
     @POST
-    public String doPostFolder(String jsonBoxFolder) throws ClientException, BoxJSONException {
+    public Object doPostFolder(InputStream jsonBoxFolder) throws ClientException, BoxJSONException {
         final CoreSession session = ctx.getCoreSession();
         BoxFolder boxFolder = boxService.getBoxFolder(jsonBoxFolder);
         // Fetching its parent to get parent id
@@ -98,26 +100,25 @@ public class BoxFolderObject extends AbstractResource<ResourceTypeImpl> {
         // Adapt nx document to box folder adapter
         final BoxFolderAdapter folderAdapter = (BoxFolderAdapter) newFolder.getAdapter(BoxAdapter.class);
         // Return the new box folder json
-        return boxService.toJSONString(folderAdapter.getBoxItem());
+        return BoxCompression.compress(ctx, "folders", boxService.getBoxEntity(folderAdapter.getBoxItem()));
     }
 
     @PUT
     @Path("{folderId}")
-    public String doPutFolder(@PathParam("folderId") String folderId, String jsonBoxFolder) throws ClientException,
+    public Object doPutFolder(@PathParam("folderId") String folderId, InputStream jsonBoxFolder) throws ClientException,
             BoxJSONException, ParseException, IllegalAccessException, InvocationTargetException {
         final CoreSession session = ctx.getCoreSession();
         // Fetch the nx document with given id
         final DocumentModel nxDocument = session.getDocument(new IdRef(folderId));
         // Create box folder from json payload
-        BoxFolder boxFolderUpdated = new BoxJSONParser(new BoxResourceHub()).parseIntoBoxObject(jsonBoxFolder,
-                BoxFolder.class);
+        BoxFolder boxFolderUpdated = boxService.getBoxFolder(jsonBoxFolder);
         // Adapt nx document to box folder adapter
         final BoxFolderAdapter nxDocumentAdapter = (BoxFolderAdapter) nxDocument.getAdapter(BoxAdapter.class);
         // Update both nx document and box folder adapter
         nxDocumentAdapter.setBoxItem(boxFolderUpdated);
         nxDocumentAdapter.save(session);
         // Return the new box folder json
-        return boxService.toJSONString(nxDocumentAdapter.getBoxItem());
+        return BoxCompression.compress(ctx, "folders", boxService.getBoxEntity(nxDocumentAdapter.getBoxItem()));
     }
 
     @DELETE
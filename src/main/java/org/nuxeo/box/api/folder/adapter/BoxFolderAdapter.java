@@ -27,7 +27,6 @@ import org.nuxeo.box.api.service.BoxService;
 import org.nuxeo.ecm.core.api.ClientException;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
-import org.nuxeo.ecm.core.api.DocumentModelList;
 import org.nuxeo.ecm.core.api.IdRef;
 import org.nuxeo.ecm.core.api.security.ACE;
 import org.nuxeo.ecm.core.api.security.ACL;
@@ -46,32 +45,54 @@ import java.util.Map;
  */
 public class BoxFolderAdapter extends BoxAdapter {
 
+    protected static final List<String> FOLDER_FIELDS = new ArrayList<>(ITEM_FIELDS);
+
+    static {
+        FOLDER_FIELDS.add(BoxFolder.FIELD_FOLDER_UPLOAD_EMAIL);
+        FOLDER_FIELDS.add(BoxFolder.FIELD_ITEM_COLLECTION);
+    }
+
     /**
-     * Instantiate the adapter and the Box Folder from Nuxeo Document and load its properties into json format
+     * Instantiate the adapter, the Box Folder properties are loaded on demand
      */
     public BoxFolderAdapter(DocumentModel doc) throws ClientException {
         super(doc);
-        CoreSession session = doc.getCoreSession();
-        // Email update
-        final Map<String, Object> boxEmailProperties = new HashMap<>();
-        boxEmailProperties.put(BoxEmail.FIELD_ACCESS, null);
-        boxEmailProperties.put(BoxEmail.FIELD_EMAIL, null);
-        final BoxEmail boxEmail = new BoxEmail(Collections.unmodifiableMap(boxEmailProperties));
-        boxProperties.put(BoxFolder.FIELD_FOLDER_UPLOAD_EMAIL, boxEmail);
+    }
 
-        // Children
-        boxProperties.put(BoxFolder.FIELD_ITEM_COLLECTION,
-                getItemCollection(session, BoxConstants.BOX_LIMIT, BoxConstants.BOX_OFFSET, BoxConstants.BOX_FIELDS));
+    @Override
+    protected List<String> getFieldNames() {
+        return FOLDER_FIELDS;
+    }
 
-        boxItem = new BoxFolder(Collections.unmodifiableMap(boxProperties));
+    @Override
+    protected BoxItem newBoxItem(Map<String, Object> properties) {
+        return new BoxFolder(properties);
+    }
+
+    @Override
+    protected Object computeProperty(String field) throws ClientException {
+        switch (field) {
+        case BoxFolder.FIELD_FOLDER_UPLOAD_EMAIL:
+            // Email update
+            final Map<String, Object> boxEmailProperties = new HashMap<>();
+            boxEmailProperties.put(BoxEmail.FIELD_ACCESS, null);
+            boxEmailProperties.put(BoxEmail.FIELD_EMAIL, null);
+            return new BoxEmail(Collections.unmodifiableMap(boxEmailProperties));
+        case BoxFolder.FIELD_ITEM_COLLECTION:
+            // Children
+            return getItemCollection(doc.getCoreSession(), BoxConstants.BOX_LIMIT, BoxConstants.BOX_OFFSET,
+                    BoxConstants.BOX_FIELDS);
+        default:
+            return super.computeProperty(field);
+        }
     }
 
     @Override
     public BoxItem getMiniItem() {
         Map<String, Object> boxProperties = new HashMap<>();
-        boxProperties.put(BoxItem.FIELD_ID, boxItem.getId());
-        boxProperties.put(BoxItem.FIELD_SEQUENCE_ID, boxItem.getSequenceId());
-        boxProperties.put(BoxItem.FIELD_NAME, boxItem.getName());
+        boxProperties.put(BoxItem.FIELD_ID, getProperty(BoxItem.FIELD_ID));
+        boxProperties.put(BoxItem.FIELD_SEQUENCE_ID, getProperty(BoxItem.FIELD_SEQUENCE_ID));
+        boxProperties.put(BoxItem.FIELD_NAME, getProperty(BoxItem.FIELD_NAME));
         return new BoxFolder(boxProperties);
     }
 
@@ -82,16 +103,7 @@ public class BoxFolderAdapter extends BoxAdapter {
      */
     public BoxCollection getItemCollection(CoreSession session, String limit, String offset, String fields)
             throws ClientException {
-        final Map<String, Object> collectionProperties = new HashMap<>();
-        // Fetch items
-        StringBuilder query = new StringBuilder();
-        query.append("SELECT * FROM Document WHERE ecm:parentId=");
-        query.append("'" + doc.getId() + "'");
-        DocumentModelList children = session.query(query.toString(), null, Long.parseLong(limit),
-                Long.parseLong(offset), false);
-        collectionProperties.put(BoxCollection.FIELD_ENTRIES, boxService.getBoxDocumentCollection(children, fields));
-        collectionProperties.put(BoxCollection.FIELD_TOTAL_COUNT, children.size());
-        return new BoxCollection(Collections.unmodifiableMap(collectionProperties));
+        return boxService.getBoxItemCollection(session, doc.getId(), limit, offset, fields);
     }
 
     /**
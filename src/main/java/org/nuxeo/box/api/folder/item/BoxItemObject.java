@@ -19,17 +19,18 @@ package org.nuxeo.box.api.folder.item;
 
 import com.google.common.base.Objects;
 import org.nuxeo.box.api.BoxConstants;
-import org.nuxeo.box.api.adapter.BoxAdapter;
-import org.nuxeo.box.api.folder.adapter.BoxFolderAdapter;
-import org.nuxeo.box.api.marshalling.dao.BoxCollection;
-import org.nuxeo.box.api.marshalling.exceptions.BoxJSONException;
+import org.nuxeo.box.api.service.BoxCollectionQuery;
 import org.nuxeo.box.api.service.BoxService;
+import org.nuxeo.box.api.utils.BoxCompression;
 import org.nuxeo.ecm.core.api.ClientException;
 import org.nuxeo.ecm.core.api.CoreSession;
-import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
 import org.nuxeo.ecm.core.api.IdRef;
+import org.nuxeo.ecm.core.api.security.SecurityConstants;
 import org.nuxeo.ecm.webengine.WebException;
 import org.nuxeo.ecm.webengine.model.WebObject;
+import org.nuxeo.ecm.webengine.model.exceptions.WebResourceNotFoundException;
+import org.nuxeo.ecm.webengine.model.exceptions.WebSecurityException;
 import org.nuxeo.ecm.webengine.model.impl.AbstractResource;
 import org.nuxeo.ecm.webengine.model.impl.ResourceTypeImpl;
 import org.nuxeo.runtime.api.Framework;
@@ -45,10 +46,13 @@ import javax.ws.rs.core.MediaType;
  * @since 5.9.2
  */
 @WebObject(type = "item")
-@Produces({ MediaType.APPLICATION_JSON })
+@Produces({ MediaType.APPLICATION_JSON, BoxConstants.APPLICATION_SMILE, BoxConstants.APPLICATION_CBOR })
 public class BoxItemObject extends AbstractResource<ResourceTypeImpl> {
 
-    BoxFolderAdapter folderAdapter;
+    /**
+     * Id of the folder whose items are listed, only its existence and permissions are checked
+     */
+    String folderId;
 
     BoxService boxService;
 
@@ -56,25 +60,44 @@ public class BoxItemObject extends AbstractResource<ResourceTypeImpl> {
     public void initialize(Object... args) {
         boxService = Framework.getLocalService(BoxService.class);
         try {
-            String folderId = (String) args[0];
+            String boxFolderId = (String) args[0];
             CoreSession session = ctx.getCoreSession();
-            DocumentModel folder = session.getDocument(new IdRef(folderId));
-            folderAdapter = (BoxFolderAdapter) folder.getAdapter(BoxAdapter.class);
+            folderId = "0".equals(boxFolderId) ? session.getRootDocument().getId() : boxFolderId;
+            DocumentRef folderRef = new IdRef(folderId);
+            // Check existence and permissions only
+            if (!session.exists(folderRef)) {
+                throw new WebResourceNotFoundException("No such document: " + boxFolderId);
+            }
+            if (!session.hasPermission(folderRef, SecurityConstants.READ)) {
+                throw new WebSecurityException("Privilege READ is not granted to " + session.getPrincipal().getName());
+            }
         } catch (ClientException e) {
             throw WebException.wrap(e);
         }
         setRoot(true);
     }
 
+    /**
+     * The items are read before the response is committed, then written to it compressed if the client accepts it.
+     */
     @GET
-    public String doGetItems(@QueryParam("offset") String offset, @QueryParam("limit") String limit,
-            @QueryParam("fields") String fields) throws BoxJSONException, ClientException {
+    public Object doGetItems(@QueryParam("offset") String offset, @QueryParam("limit") String limit,
+            @QueryParam("fields") String fields, @QueryParam("usemarker") boolean useMarker,
+            @QueryParam("marker") String marker) {
         CoreSession session = ctx.getCoreSession();
-        BoxCollection itemCollection = folderAdapter.getItemCollection(session,
-                Objects.firstNonNull(limit, BoxConstants.BOX_LIMIT),
-                Objects.firstNonNull(offset, BoxConstants.BOX_OFFSET),
-                Objects.firstNonNull(fields, BoxConstants.BOX_FIELDS));
-        return boxService.toJSONString(itemCollection);
+        BoxCollectionQuery items;
+        if (useMarker || marker != null) {
+            items = boxService.getBoxItemCollectionFromMarker(session, folderId,
+                    Objects.firstNonNull(limit, BoxConstants.BOX_LIMIT), marker,
+                    Objects.firstNonNull(fields, BoxConstants.BOX_FIELDS));
+        } else {
+            items = boxService.getBoxItemCollectionQuery(session, folderId,
+                    Objects.firstNonNull(limit, BoxConstants.BOX_LIMIT),
+                    Objects.firstNonNull(offset, BoxConstants.BOX_OFFSET),
+                    Objects.firstNonNull(fields, BoxConstants.BOX_FIELDS));
+        }
+        // Run the query before the response is committed, only its serialization being streamed
+        return BoxCompression.compress(ctx, "items", items.execute());
     }
 
 }
@@ -3,7 +3,7 @@ package org.nuxeo.box.api.marshalling.dao;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
-import org.nuxeo.box.api.utils.ISO8601DateParser;
+import org.nuxeo.box.api.utils.ISO8601DateCodec;
 
 import java.text.ParseException;
 import java.util.Date;
@@ -140,7 +140,7 @@ public class BoxCollaboration extends BoxTypedObject {
      * @throws java.text.ParseException
      */
     public Date dateExpiresAt() throws ParseException {
-        return ISO8601DateParser.parseSilently(getExpiresAt());
+        return ISO8601DateCodec.parseSilently(getExpiresAt());
     }
 
     /**
@@ -8,6 +8,8 @@ public class BoxCollection extends BoxCollectionBase {
 
     public static final String FIELD_TOTAL_COUNT = "total_count";
 
+    public static final String FIELD_NEXT_MARKER = "next_marker";
+
     public BoxCollection() {
     }
 
@@ -44,4 +46,20 @@ public class BoxCollection extends BoxCollectionBase {
     private void setTotalCount(Integer totalCount) {
         put(FIELD_TOTAL_COUNT, totalCount);
     }
+
+    /**
+     * @return the next_marker, null on the last page or when paging with offset
+     */
+    @JsonProperty("next_marker")
+    public String getNextMarker() {
+        return (String) getValue(FIELD_NEXT_MARKER);
+    }
+
+    /**
+     * @param nextMarker the next_marker to set
+     */
+    @JsonProperty("next_marker")
+    private void setNextMarker(String nextMarker) {
+        put(FIELD_NEXT_MARKER, nextMarker);
+    }
 }
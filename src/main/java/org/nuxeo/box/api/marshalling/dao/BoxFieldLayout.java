@@ -0,0 +1,89 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.marshalling.dao;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Slot indexes of the well-known fields of a box object class, taken from the FIELD_* constants of the class and of
+ * its super classes. Built once per class and immutable.
+ *
+ * @since 7.3
+ */
+final class BoxFieldLayout {
+
+    private static final ClassValue<BoxFieldLayout> LAYOUTS = new ClassValue<BoxFieldLayout>() {
+        @Override
+        protected BoxFieldLayout computeValue(Class<?> type) {
+            return new BoxFieldLayout(type);
+        }
+    };
+
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    private final List<String> fields = new ArrayList<>();
+
+    static BoxFieldLayout of(Class<?> type) {
+        return LAYOUTS.get(type);
+    }
+
+    private BoxFieldLayout(Class<?> type) {
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> cls = type; cls != null && BoxObject.class.isAssignableFrom(cls); cls = cls.getSuperclass()) {
+            hierarchy.add(0, cls);
+        }
+        for (Class<?> cls : hierarchy) {
+            for (Field field : cls.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers) && field.getType() == String.class
+                        && field.getName().startsWith("FIELD_")) {
+                    field.setAccessible(true);
+                    try {
+                        String name = (String) field.get(null);
+                        if (!slots.containsKey(name)) {
+                            slots.put(name, fields.size());
+                            fields.add(name);
+                        }
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the slot of the field, or -1 if it is not a well-known field of the class
+     */
+    int slot(String field) {
+        Integer slot = slots.get(field);
+        return slot != null ? slot : -1;
+    }
+
+    String field(int slot) {
+        return fields.get(slot);
+    }
+
+    int size() {
+        return fields.size();
+    }
+}
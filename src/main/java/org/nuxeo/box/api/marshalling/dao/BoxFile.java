@@ -2,7 +2,7 @@ package org.nuxeo.box.api.marshalling.dao;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
-import org.nuxeo.box.api.utils.ISO8601DateParser;
+import org.nuxeo.box.api.utils.ISO8601DateCodec;
 
 import java.util.Date;
 import java.util.Map;
@@ -80,7 +80,7 @@ public class BoxFile extends BoxItem {
      * @return
      */
     public Date dateContentCreatedAt() {
-        return ISO8601DateParser.parseSilently(getContentCreatedAt());
+        return ISO8601DateCodec.parseSilently(getContentCreatedAt());
     }
 
     @JsonProperty(FIELD_CONTENT_CREATED_AT)
@@ -100,7 +100,7 @@ public class BoxFile extends BoxItem {
      * @return
      */
     public Date dateContentModifieddAt() {
-        return ISO8601DateParser.parseSilently(getContentModifiedAt());
+        return ISO8601DateCodec.parseSilently(getContentModifiedAt());
     }
 
     @JsonProperty(FIELD_CONTENT_MODIFIED_AT)
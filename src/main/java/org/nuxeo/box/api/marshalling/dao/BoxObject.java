@@ -6,21 +6,49 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import org.nuxeo.box.api.marshalling.jsonentities.DefaultJSONStringEntity;
 import org.apache.commons.lang.builder.HashCodeBuilder;
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Box object holding its well-known fields (the FIELD_* constants of its class) in an array of slots. Other fields
+ * and extra data go to maps allocated on demand. Nested box objects and lists are shared, never cloned: they must be
+ * replaced rather than modified in place. Copies of a read-only or shared object share its storage until they are
+ * modified, copies of any other object get their own storage: a copy never writes to its source, which may be read
+ * by other threads.
+ */
 public class BoxObject extends DefaultJSONStringEntity {
 
-    private static final Log log = LogFactory.getLog(BoxObject.class);
+    /**
+     * Slot value of a field set to null, an empty slot being an absent field
+     */
+    private static final Object NULL = new Object();
+
+    private final BoxFieldLayout layout = BoxFieldLayout.of(getClass());
 
-    private final Map<String, Object> extraMap = new HashMap<String, Object>();
+    private Object[] values;
 
-    private final Map<String, Object> map = new HashMap<String, Object>();
+    /**
+     * Fields out of the layout of the class
+     */
+    private Map<String, Object> otherValues;
+
+    private Map<String, Object> extraMap;
+
+    /**
+     * Whether the storage may be referenced by another object, in which case it is copied before the first write. Set
+     * before the object is published, never by a copy.
+     */
+    private boolean shared;
+
+    /**
+     * Whether the object may be read by several threads, in which case any write fails
+     */
+    private boolean readOnly;
 
     public BoxObject() {
     }
@@ -31,66 +59,131 @@ public class BoxObject extends DefaultJSONStringEntity {
      * @param map
      */
     public BoxObject(Map<String, Object> map) {
-        cloneMap(this.map, map);
+        putAll(map);
     }
 
     /**
-     * Copy constructor, this does deep copy for all the fields.
+     * Copy constructor, the fields of a read-only or shared object are shared with it until the copy is modified, the
+     * fields of any other object are copied. The given object is never modified.
      *
      * @param obj
      */
     public BoxObject(BoxObject obj) {
-        cloneMap(map, obj.map);
-        cloneMap(extraMap, obj.extraMap);
+        if (obj.layout == layout) {
+            values = obj.values;
+            otherValues = obj.otherValues;
+            extraMap = obj.extraMap;
+            shared = true;
+            if (!obj.shared) {
+                ensureOwnStorage();
+            }
+        } else {
+            for (String key : obj.getKeySet()) {
+                put(key, obj.getValue(key));
+            }
+            if (obj.extraMap != null) {
+                extraMap = new HashMap<String, Object>(obj.extraMap);
+            }
+        }
     }
 
     /**
-     * Clone a map to another
+     * Make the object read-only, before it is published to other threads. Its copies remain writable.
      *
-     * @param destination
-     * @param source
-     */
-    @SuppressWarnings("unchecked")
-    private static void cloneMap(Map<String, Object> destination, Map<String, Object> source) {
-        for (Map.Entry<String, Object> entry : source.entrySet()) {
-            Object value = entry.getValue();
-            if (value instanceof BoxObject) {
-                try {
-                    destination.put(entry.getKey(),
-                            value.getClass().getConstructor(value.getClass()).newInstance(value));
-                } catch (ReflectiveOperationException e) {
-                    log.error(e, e);
-                }
-            } else if (value instanceof ArrayList<?>) {
-                ArrayList<Object> list = new ArrayList<Object>();
-                cloneArrayList(list, (ArrayList<Object>) value);
-                destination.put(entry.getKey(), list);
-            } else {
-                destination.put(entry.getKey(), value);
-            }
+     * @since 7.3
+     */
+    public void setReadOnly() {
+        readOnly = true;
+        shared = true;
+    }
+
+    /**
+     * @since 7.3
+     */
+    @JsonIgnore
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Make the storage private to this object before a write.
+     */
+    private void ensureOwnStorage() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Read-only box object: " + getClass().getSimpleName());
+        }
+        if (shared) {
+            values = values != null ? values.clone() : null;
+            otherValues = otherValues != null ? new HashMap<String, Object>(otherValues) : null;
+            extraMap = extraMap != null ? new HashMap<String, Object>(extraMap) : null;
+            shared = false;
         }
     }
 
     /**
-     * Clone an arraylist.
+     * Fields of an object at a point in time, sharing its storage: the object copies it before its next write.
      *
-     * @param destination
-     * @param source
-     */
-    private static void cloneArrayList(ArrayList<Object> destination, ArrayList<Object> source) {
-        for (Object obj : source) {
-            if (obj instanceof BoxObject) {
-                try {
-                    destination.add(obj.getClass().getConstructor(obj.getClass()).newInstance(obj));
-                } catch (ReflectiveOperationException e) {
-                    log.error(e, e);
-                }
-            } else {
-                destination.add(obj);
-            }
+     * @since 7.3
+     */
+    public static final class Fields {
+
+        private final BoxFieldLayout layout;
+
+        private final Object[] values;
+
+        private final Map<String, Object> otherValues;
+
+        private final Map<String, Object> extraMap;
+
+        private Fields(BoxObject obj) {
+            layout = obj.layout;
+            values = obj.values;
+            otherValues = obj.otherValues;
+            extraMap = obj.extraMap;
         }
     }
 
+    /**
+     * @return the current fields of this object, extra ones included, without copying them
+     * @since 7.3
+     */
+    public Fields getFields() {
+        if (!shared) {
+            shared = true;
+        }
+        return new Fields(this);
+    }
+
+    /**
+     * @return whether this object has the given fields, compared slot by slot without building any map
+     * @since 7.3
+     */
+    public boolean hasFields(Fields fields) {
+        if (fields.layout != layout) {
+            return false;
+        }
+        if (fields.values == values && fields.otherValues == otherValues && fields.extraMap == extraMap) {
+            return true;
+        }
+        return Arrays.equals(fields.values, values) && isEqual(fields.otherValues, otherValues)
+                && isEqual(fields.extraMap, extraMap);
+    }
+
+    private static boolean isEqual(Map<String, Object> map, Map<String, Object> other) {
+        return map == null || map.isEmpty() ? other == null || other.isEmpty() : map.equals(other);
+    }
+
+    /**
+     * @return the fields as a map, for comparisons
+     */
+    private Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<String, Object>();
+        for (String key : getKeySet()) {
+            map.put(key, getValue(key));
+        }
+        return map;
+    }
+
     /**
      * Whether the two objects are equal. This strictly compares all the fields in the two objects, if any fields are
      * different this returns false.
@@ -109,24 +202,43 @@ public class BoxObject extends DefaultJSONStringEntity {
         }
 
         BoxObject bObj = (BoxObject) obj;
-        return map.equals(bObj.map) && extraMap.equals(bObj.extraMap);
+        return toMap().equals(bObj.toMap()) && properties().equals(bObj.properties());
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder().append(map).append(extraMap).toHashCode();
+        return new HashCodeBuilder().append(toMap()).append(properties()).toHashCode();
     }
 
     public void put(String key, Object value) {
-        map.put(key, value);
+        ensureOwnStorage();
+        int slot = layout.slot(key);
+        if (slot >= 0) {
+            if (values == null) {
+                values = new Object[layout.size()];
+            }
+            values[slot] = value != null ? value : NULL;
+        } else {
+            if (otherValues == null) {
+                otherValues = new HashMap<String, Object>();
+            }
+            otherValues.put(key, value);
+        }
     }
 
     public void putAll(Map<String, Object> newMap) {
-        map.putAll(newMap);
+        for (Map.Entry<String, Object> entry : newMap.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
     }
 
     public Object getValue(String key) {
-        return map.get(key);
+        int slot = layout.slot(key);
+        if (slot >= 0) {
+            Object value = values != null ? values[slot] : null;
+            return value != NULL ? value : null;
+        }
+        return otherValues != null ? otherValues.get(key) : null;
     }
 
     /**
@@ -136,12 +248,12 @@ public class BoxObject extends DefaultJSONStringEntity {
      * @return extra object
      */
     public Object getExtraData(String key) {
-        return extraMap.get(key);
+        return extraMap != null ? extraMap.get(key) : null;
     }
 
     @JsonAnyGetter
     public Map<String, Object> properties() {
-        return extraMap;
+        return extraMap != null ? Collections.unmodifiableMap(extraMap) : Collections.<String, Object> emptyMap();
     }
 
     /**
@@ -152,12 +264,19 @@ public class BoxObject extends DefaultJSONStringEntity {
      * @return whether the field exists
      */
     public boolean contains(String key) {
-        return map.containsKey(key) || extraMap.containsKey(key);
+        int slot = layout.slot(key);
+        boolean inFields = slot >= 0 ? values != null && values[slot] != null : otherValues != null
+                && otherValues.containsKey(key);
+        return inFields || extraMap != null && extraMap.containsKey(key);
     }
 
     @JsonAnySetter
     public void handleUnknown(String key, Object value) {
         if (value instanceof String) {
+            ensureOwnStorage();
+            if (extraMap == null) {
+                extraMap = new HashMap<String, Object>();
+            }
             extraMap.put(key, value);
         }
     }
@@ -169,6 +288,17 @@ public class BoxObject extends DefaultJSONStringEntity {
      */
     @JsonIgnore
     public Set<String> getKeySet() {
-        return map.keySet();
+        Set<String> keys = new LinkedHashSet<String>();
+        if (values != null) {
+            for (int slot = 0; slot < values.length; slot++) {
+                if (values[slot] != null) {
+                    keys.add(layout.field(slot));
+                }
+            }
+        }
+        if (otherValues != null) {
+            keys.addAll(otherValues.keySet());
+        }
+        return Collections.unmodifiableSet(keys);
     }
 }
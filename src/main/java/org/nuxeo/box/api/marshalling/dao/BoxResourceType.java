@@ -125,7 +125,11 @@ public enum BoxResourceType implements IBoxType {
     /**
      * Login token
      */
-    LOGIN_TOKEN;
+    LOGIN_TOKEN,
+    /**
+     * Session uploading a file in parts.
+     */
+    UPLOAD_SESSION;
 
     // As a performance optimization, set up string values for all types.
     private static final Map<BoxResourceType, String> typeToLowercaseString = new HashMap<BoxResourceType, String>();
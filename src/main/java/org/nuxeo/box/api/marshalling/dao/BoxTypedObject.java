@@ -2,7 +2,7 @@ package org.nuxeo.box.api.marshalling.dao;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
-import org.nuxeo.box.api.utils.ISO8601DateParser;
+import org.nuxeo.box.api.utils.ISO8601DateCodec;
 
 import java.util.Date;
 import java.util.Map;
@@ -121,7 +121,7 @@ public class BoxTypedObject extends BoxObject {
      * @throws java.text.ParseException
      */
     public Date dateCreatedAt() {
-        return ISO8601DateParser.parseSilently(getCreatedAt());
+        return ISO8601DateCodec.parseSilently(getCreatedAt());
     }
 
     /**
@@ -153,6 +153,6 @@ public class BoxTypedObject extends BoxObject {
      * @throws java.text.ParseException
      */
     public Date dateModifiedAt() {
-        return ISO8601DateParser.parseSilently(getModifiedAt());
+        return ISO8601DateCodec.parseSilently(getModifiedAt());
     }
 }
@@ -0,0 +1,104 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.marshalling.dao;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+/**
+ * Part uploaded in an upload session.
+ *
+ * @since 7.3
+ */
+public class BoxUploadPart extends BoxObject {
+
+    public static final String FIELD_PART_ID = "part_id";
+
+    public static final String FIELD_OFFSET = "offset";
+
+    public static final String FIELD_SIZE = "size";
+
+    public static final String FIELD_SHA1 = "sha1";
+
+    public BoxUploadPart() {
+    }
+
+    /**
+     * Copy constructor, the fields are shared with the given object until one of them is modified.
+     *
+     * @param obj
+     */
+    public BoxUploadPart(BoxUploadPart obj) {
+        super(obj);
+    }
+
+    /**
+     * Instantiate the object from a map. Each entry in the map reflects to a field.
+     *
+     * @param map
+     */
+    public BoxUploadPart(Map<String, Object> map) {
+        super(map);
+    }
+
+    @JsonProperty(FIELD_PART_ID)
+    public String getPartId() {
+        return (String) getValue(FIELD_PART_ID);
+    }
+
+    @JsonProperty(FIELD_PART_ID)
+    public void setPartId(String partId) {
+        put(FIELD_PART_ID, partId);
+    }
+
+    /**
+     * @return the offset of the part in the file
+     */
+    @JsonProperty(FIELD_OFFSET)
+    public Long getOffset() {
+        return (Long) getValue(FIELD_OFFSET);
+    }
+
+    @JsonProperty(FIELD_OFFSET)
+    public void setOffset(Long offset) {
+        put(FIELD_OFFSET, offset);
+    }
+
+    @JsonProperty(FIELD_SIZE)
+    public Long getSize() {
+        return (Long) getValue(FIELD_SIZE);
+    }
+
+    @JsonProperty(FIELD_SIZE)
+    public void setSize(Long size) {
+        put(FIELD_SIZE, size);
+    }
+
+    /**
+     * @return the hex SHA-1 digest of the part
+     */
+    @JsonProperty(FIELD_SHA1)
+    public String getSha1() {
+        return (String) getValue(FIELD_SHA1);
+    }
+
+    @JsonProperty(FIELD_SHA1)
+    public void setSha1(String sha1) {
+        put(FIELD_SHA1, sha1);
+    }
+}
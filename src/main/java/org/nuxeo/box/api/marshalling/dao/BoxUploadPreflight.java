@@ -0,0 +1,90 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.marshalling.dao;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+/**
+ * Result of an upload preflight: where to upload the file, and whether its content is already known so that the file
+ * can be created without its bytes.
+ *
+ * @since 7.3
+ */
+public class BoxUploadPreflight extends BoxObject {
+
+    public static final String FIELD_UPLOAD_URL = "upload_url";
+
+    public static final String FIELD_UPLOAD_TOKEN = "upload_token";
+
+    public static final String FIELD_CONTENT_EXISTS = "content_exists";
+
+    public BoxUploadPreflight() {
+    }
+
+    /**
+     * Copy constructor, the fields are shared with the given object until one of them is modified.
+     *
+     * @param obj
+     */
+    public BoxUploadPreflight(BoxUploadPreflight obj) {
+        super(obj);
+    }
+
+    /**
+     * Instantiate the object from a map. Each entry in the map reflects to a field.
+     *
+     * @param map
+     */
+    public BoxUploadPreflight(Map<String, Object> map) {
+        super(map);
+    }
+
+    @JsonProperty(FIELD_UPLOAD_URL)
+    public String getUploadUrl() {
+        return (String) getValue(FIELD_UPLOAD_URL);
+    }
+
+    @JsonProperty(FIELD_UPLOAD_URL)
+    public void setUploadUrl(String uploadUrl) {
+        put(FIELD_UPLOAD_URL, uploadUrl);
+    }
+
+    @JsonProperty(FIELD_UPLOAD_TOKEN)
+    public String getUploadToken() {
+        return (String) getValue(FIELD_UPLOAD_TOKEN);
+    }
+
+    @JsonProperty(FIELD_UPLOAD_TOKEN)
+    public void setUploadToken(String uploadToken) {
+        put(FIELD_UPLOAD_TOKEN, uploadToken);
+    }
+
+    /**
+     * @return true if a file with the digest of the preflight can be created by reference, without its content
+     */
+    @JsonProperty(FIELD_CONTENT_EXISTS)
+    public Boolean getContentExists() {
+        return (Boolean) getValue(FIELD_CONTENT_EXISTS);
+    }
+
+    @JsonProperty(FIELD_CONTENT_EXISTS)
+    public void setContentExists(Boolean contentExists) {
+        put(FIELD_CONTENT_EXISTS, contentExists);
+    }
+}
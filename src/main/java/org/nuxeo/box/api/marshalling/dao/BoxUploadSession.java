@@ -0,0 +1,158 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.marshalling.dao;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Session uploading the parts of a file, then committing them as a new file. The folder, file name and file size are
+ * given on creation.
+ *
+ * @since 7.3
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "type", defaultImpl = BoxUploadSession.class)
+public class BoxUploadSession extends BoxTypedObject {
+
+    public static final String FIELD_SESSION_EXPIRES_AT = "session_expires_at";
+
+    public static final String FIELD_PART_SIZE = "part_size";
+
+    public static final String FIELD_TOTAL_PARTS = "total_parts";
+
+    public static final String FIELD_NUM_PARTS_PROCESSED = "num_parts_processed";
+
+    public static final String FIELD_FOLDER_ID = "folder_id";
+
+    public static final String FIELD_FILE_NAME = "file_name";
+
+    public static final String FIELD_FILE_SIZE = "file_size";
+
+    public static final String FIELD_PARTS = "parts";
+
+    public BoxUploadSession() {
+        setType(BoxResourceType.UPLOAD_SESSION.toString());
+    }
+
+    /**
+     * Copy constructor, the fields are shared with the given object until one of them is modified.
+     *
+     * @param obj
+     */
+    public BoxUploadSession(BoxUploadSession obj) {
+        super(obj);
+    }
+
+    /**
+     * Instantiate the object from a map. Each entry in the map reflects to a field.
+     *
+     * @param map
+     */
+    public BoxUploadSession(Map<String, Object> map) {
+        super(map);
+    }
+
+    @JsonProperty(FIELD_SESSION_EXPIRES_AT)
+    public String getSessionExpiresAt() {
+        return (String) getValue(FIELD_SESSION_EXPIRES_AT);
+    }
+
+    @JsonProperty(FIELD_SESSION_EXPIRES_AT)
+    public void setSessionExpiresAt(String sessionExpiresAt) {
+        put(FIELD_SESSION_EXPIRES_AT, sessionExpiresAt);
+    }
+
+    /**
+     * @return the size of all the parts but the last one
+     */
+    @JsonProperty(FIELD_PART_SIZE)
+    public Long getPartSize() {
+        return (Long) getValue(FIELD_PART_SIZE);
+    }
+
+    @JsonProperty(FIELD_PART_SIZE)
+    public void setPartSize(Long partSize) {
+        put(FIELD_PART_SIZE, partSize);
+    }
+
+    @JsonProperty(FIELD_TOTAL_PARTS)
+    public Integer getTotalParts() {
+        return (Integer) getValue(FIELD_TOTAL_PARTS);
+    }
+
+    @JsonProperty(FIELD_TOTAL_PARTS)
+    public void setTotalParts(Integer totalParts) {
+        put(FIELD_TOTAL_PARTS, totalParts);
+    }
+
+    @JsonProperty(FIELD_NUM_PARTS_PROCESSED)
+    public Integer getNumPartsProcessed() {
+        return (Integer) getValue(FIELD_NUM_PARTS_PROCESSED);
+    }
+
+    @JsonProperty(FIELD_NUM_PARTS_PROCESSED)
+    public void setNumPartsProcessed(Integer numPartsProcessed) {
+        put(FIELD_NUM_PARTS_PROCESSED, numPartsProcessed);
+    }
+
+    @JsonProperty(FIELD_FOLDER_ID)
+    public String getFolderId() {
+        return (String) getValue(FIELD_FOLDER_ID);
+    }
+
+    @JsonProperty(FIELD_FOLDER_ID)
+    public void setFolderId(String folderId) {
+        put(FIELD_FOLDER_ID, folderId);
+    }
+
+    @JsonProperty(FIELD_FILE_NAME)
+    public String getFileName() {
+        return (String) getValue(FIELD_FILE_NAME);
+    }
+
+    @JsonProperty(FIELD_FILE_NAME)
+    public void setFileName(String fileName) {
+        put(FIELD_FILE_NAME, fileName);
+    }
+
+    @JsonProperty(FIELD_FILE_SIZE)
+    public Long getFileSize() {
+        return (Long) getValue(FIELD_FILE_SIZE);
+    }
+
+    @JsonProperty(FIELD_FILE_SIZE)
+    public void setFileSize(Long fileSize) {
+        put(FIELD_FILE_SIZE, fileSize);
+    }
+
+    /**
+     * @return the parts uploaded so far, ordered by offset
+     */
+    @SuppressWarnings("unchecked")
+    @JsonProperty(FIELD_PARTS)
+    public ArrayList<BoxUploadPart> getParts() {
+        return (ArrayList<BoxUploadPart>) getValue(FIELD_PARTS);
+    }
+
+    @JsonProperty(FIELD_PARTS)
+    public void setParts(ArrayList<BoxUploadPart> parts) {
+        put(FIELD_PARTS, parts);
+    }
+}
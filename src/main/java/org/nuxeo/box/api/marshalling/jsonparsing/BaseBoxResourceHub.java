@@ -4,6 +4,7 @@ import org.nuxeo.box.api.marshalling.dao.BoxObject;
 import org.nuxeo.box.api.marshalling.interfaces.IBoxResourceHub;
 import org.nuxeo.box.api.marshalling.interfaces.IBoxType;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -11,10 +12,12 @@ import java.util.Map;
 public abstract class BaseBoxResourceHub implements IBoxResourceHub {
 
     // As a performance optimization, set up string values for all types.
-    private static final Map<String, IBoxType> lowercaseStringToType = new HashMap<String, IBoxType>();
+    // Filled once by initializeTypes, read-only afterwards.
+    private Map<String, IBoxType> lowercaseStringToType = new HashMap<String, IBoxType>();
 
     public BaseBoxResourceHub() {
         initializeTypes();
+        lowercaseStringToType = Collections.unmodifiableMap(lowercaseStringToType);
     }
 
     @Override
@@ -0,0 +1,123 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.marshalling.jsonparsing;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.apache.commons.lang.StringUtils;
+import org.nuxeo.box.api.BoxConstants;
+
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Wire formats of the box objects: JSON for all clients, and the Smile and CBOR binary encodings of the same model
+ * for the machine clients asking for them.
+ *
+ * @since 7.3
+ */
+public enum BoxDataFormat {
+
+    JSON(MediaType.APPLICATION_JSON) {
+        @Override
+        public JsonFactory newFactory() {
+            return new JsonFactory();
+        }
+    },
+
+    SMILE(BoxConstants.APPLICATION_SMILE) {
+        @Override
+        public JsonFactory newFactory() {
+            return new SmileFactory();
+        }
+    },
+
+    CBOR(BoxConstants.APPLICATION_CBOR) {
+        @Override
+        public JsonFactory newFactory() {
+            return new CBORFactory();
+        }
+    };
+
+    private final String mediaType;
+
+    BoxDataFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public abstract JsonFactory newFactory();
+
+    /**
+     * @return the format of the given media type, without its parameters, null if none
+     */
+    public static BoxDataFormat fromMediaType(String mediaType) {
+        if (mediaType == null) {
+            return null;
+        }
+        String type = StringUtils.substringBefore(mediaType, ";").trim();
+        for (BoxDataFormat format : values()) {
+            if (format.mediaType.equalsIgnoreCase(type)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the format of a request body of the given Content-Type, JSON by default
+     */
+    public static BoxDataFormat fromContentType(String contentType) {
+        BoxDataFormat format = fromMediaType(contentType);
+        return format != null ? format : JSON;
+    }
+
+    /**
+     * @return the preferred format of the given Accept header, JSON by default or on ties
+     */
+    public static BoxDataFormat fromAccept(String accept) {
+        if (StringUtils.isBlank(accept)) {
+            return JSON;
+        }
+        BoxDataFormat preferred = JSON;
+        float quality = -1;
+        for (String range : accept.split(",")) {
+            String[] params = range.split(";");
+            String type = params[0].trim().toLowerCase();
+            float q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Float.parseFloat(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            BoxDataFormat format = "*/*".equals(type) || "application/*".equals(type) ? JSON : fromMediaType(type);
+            if (format != null && q > 0 && q > quality) {
+                preferred = format;
+                quality = q;
+            }
+        }
+        return preferred;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.marshalling.jsonparsing;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.nuxeo.box.api.marshalling.dao.BoxItem;
+import org.nuxeo.box.api.marshalling.dao.BoxObject;
+import org.nuxeo.box.api.marshalling.dao.BoxTypedObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encoded JSON of mini box objects, such as the parent folder, the path collection entries or the users of an item,
+ * which are written again and again within and across responses.
+ * <p>
+ * A fragment is keyed by the class, id and etag of its object and kept as UTF-8 bytes along with the fields it was
+ * encoded from. It is encoded again when the fields of the object differ, so it can never be stale. Only flat objects
+ * with an id, whose fields are all strings, numbers or booleans, are cached.
+ *
+ * @since 7.3
+ */
+public class BoxFragmentCache {
+
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    /**
+     * Objects with more fields are not mini objects
+     */
+    protected static final int MAX_FIELDS = 8;
+
+    /**
+     * Writes an object to a generator.
+     */
+    public interface Encoder {
+
+        void encode(JsonGenerator jg) throws IOException;
+    }
+
+    /**
+     * Class, id and etag of a cached object, the etag being null for users and groups.
+     */
+    protected static final class Key {
+
+        protected final Class<?> type;
+
+        protected final Object id;
+
+        protected final Object etag;
+
+        protected Key(Class<?> type, Object id, Object etag) {
+            this.type = type;
+            this.id = id;
+            this.etag = etag;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) obj;
+            return type == key.type && id.equals(key.id) && (etag == null ? key.etag == null : etag.equals(key.etag));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * type.hashCode() + id.hashCode()) + (etag != null ? etag.hashCode() : 0);
+        }
+    }
+
+    /**
+     * Fields of an object and their UTF-8 JSON, null if the object is not flat.
+     */
+    protected static final class Fragment {
+
+        protected final BoxObject.Fields fields;
+
+        protected final byte[] bytes;
+
+        /**
+         * Decoded on demand, for the generators writing to characters
+         */
+        protected volatile String text;
+
+        protected Fragment(BoxObject.Fields fields, byte[] bytes) {
+            this.fields = fields;
+            this.bytes = bytes;
+        }
+
+        protected String getText() {
+            String result = text;
+            if (result == null) {
+                text = result = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return result;
+        }
+    }
+
+    protected final JsonFactory factory = new JsonFactory();
+
+    protected final Cache<Key, Fragment> fragments;
+
+    public BoxFragmentCache(int maxSize) {
+        fragments = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * Write the object as the next value of the generator from its fragment, encoded on the first call and again
+     * whenever its fields change.
+     *
+     * @return false if the object cannot be cached, nothing being written then
+     */
+    public boolean write(JsonGenerator jg, BoxObject object, Encoder encoder) throws IOException {
+        Object id = object.getValue(BoxTypedObject.FIELD_ID);
+        if (id == null) {
+            return false;
+        }
+        Key key = new Key(object.getClass(), id, object.getValue(BoxItem.FIELD_ETAG));
+        Fragment fragment = fragments.getIfPresent(key);
+        if (fragment == null || !object.hasFields(fragment.fields)) {
+            fragment = encode(object, encoder);
+            fragments.put(key, fragment);
+        }
+        if (fragment.bytes == null) {
+            return false;
+        }
+        writeRawValue(jg, fragment);
+        return true;
+    }
+
+    protected Fragment encode(BoxObject object, Encoder encoder) throws IOException {
+        BoxObject.Fields fields = object.getFields();
+        if (!isFlat(object)) {
+            return new Fragment(fields, null);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream(128);
+        try (JsonGenerator jg = factory.createGenerator(output, JsonEncoding.UTF8)) {
+            encoder.encode(jg);
+        }
+        return new Fragment(fields, output.toByteArray());
+    }
+
+    protected static boolean isFlat(BoxObject object) {
+        Set<String> fields = object.getKeySet();
+        Map<String, Object> extra = object.properties();
+        if (fields.size() + extra.size() > MAX_FIELDS) {
+            return false;
+        }
+        for (String field : fields) {
+            if (!isScalar(object.getValue(field))) {
+                return false;
+            }
+        }
+        for (Object value : extra.values()) {
+            if (!isScalar(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected static boolean isScalar(Object value) {
+        return value == null || value instanceof String || value instanceof Number || value instanceof Boolean;
+    }
+
+    /**
+     * Splice the fragment bytes in the stream of a UTF-8 generator, or its text in a generator writing characters.
+     */
+    protected static void writeRawValue(JsonGenerator jg, Fragment fragment) throws IOException {
+        Object target = jg.getOutputTarget();
+        if (!(target instanceof OutputStream)) {
+            jg.writeRawValue(fragment.getText());
+            return;
+        }
+        // Writes the separator of the value, then the buffered output before the bytes, without flushing the stream
+        jg.writeRawValue("");
+        boolean flushStream = jg.isEnabled(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        jg.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        try {
+            jg.flush();
+        } finally {
+            if (flushStream) {
+                jg.enable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            }
+        }
+        ((OutputStream) target).write(fragment.bytes);
+    }
+
+    public void clear() {
+        fragments.invalidateAll();
+    }
+}
@@ -1,11 +1,15 @@
 package org.nuxeo.box.api.marshalling.jsonparsing;
 
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
-import com.fasterxml.jackson.core.JsonFactory;
-import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.fasterxml.jackson.databind.module.SimpleModule;
 
 import org.nuxeo.box.api.marshalling.exceptions.BoxJSONException;
 import org.nuxeo.box.api.marshalling.interfaces.IBoxJSONParser;
@@ -14,6 +18,9 @@ import org.nuxeo.box.api.marshalling.interfaces.IBoxType;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * The json parser class wrapping Jackson JSON parser. For now, if user wants to remove jackson dependency(jackson
@@ -21,25 +28,75 @@ import java.io.InputStream;
  * parser. An alternative approach (not taken yet) requires user to implement a new IBoxJSONParser, in the meantime make
  * all the jackson library related calls in this class reflection calls. However this is error prone if we need to
  * update jackson. Since jackson is still the recommended way. We are not doing the reflection way yet.
+ * <p>
+ * Once built, a parser is thread safe and meant to be shared: readers and writers are cached. The box types written on
+ * every response are serialized by {@link BoxObjectSerializer}s rather than by reflective bean serializers, with the
+ * encoded mini objects they reference kept in a {@link BoxFragmentCache}.
  */
 public class BoxJSONParser implements IBoxJSONParser {
 
+    private final BoxDataFormat mFormat;
+
     private final ObjectMapper mObjectMapper;
 
+    /**
+     * Writer of values inside a generator, leaving the flushes to the generator owner
+     */
+    private final ObjectWriter mValueWriter;
+
+    private final ObjectWriter mWriter;
+
+    private final ConcurrentMap<Class<?>, ObjectReader> mReaders = new ConcurrentHashMap<>();
+
     public BoxJSONParser(final IBoxResourceHub hub) {
-        mObjectMapper = new ObjectMapper();
+        this(hub, true);
+    }
+
+    /**
+     * @param boxSerializers whether to serialize the box types with {@link BoxObjectSerializer}s, or with the plain
+     *            bean serializers
+     * @since 7.3
+     */
+    public BoxJSONParser(final IBoxResourceHub hub, boolean boxSerializers) {
+        this(hub, boxSerializers, BoxDataFormat.JSON);
+    }
+
+    /**
+     * @param format the wire format of the box objects, JSON or one of its binary encodings
+     * @since 7.3
+     */
+    public BoxJSONParser(final IBoxResourceHub hub, boolean boxSerializers, BoxDataFormat format) {
+        mFormat = format;
+        mObjectMapper = new ObjectMapper(format.newFactory());
         mObjectMapper.setSerializationInclusion(Include.NON_NULL);
         mObjectMapper.configure(DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES, false);
         mObjectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         for (IBoxType type : hub.getAllTypes()) {
             mObjectMapper.registerSubtypes(new NamedType(hub.getClass(type), type.toString()));
         }
+        if (boxSerializers) {
+            SimpleModule module = new SimpleModule("BoxSerializers");
+            // Fragments are JSON text, spliced raw
+            BoxFragmentCache fragments = format == BoxDataFormat.JSON ? new BoxFragmentCache(
+                    BoxFragmentCache.DEFAULT_MAX_SIZE) : null;
+            module.setSerializerModifier(new BoxSerializerModifier(fragments));
+            mObjectMapper.registerModule(module);
+        }
+        mValueWriter = mObjectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        mWriter = mObjectMapper.writer();
     }
 
     protected ObjectMapper getObjectMapper() {
         return mObjectMapper;
     }
 
+    /**
+     * @since 7.3
+     */
+    public BoxDataFormat getFormat() {
+        return mFormat;
+    }
+
     @Override
     public String convertBoxObjectToJSONStringQuietly(final Object object) {
         try {
@@ -70,18 +127,34 @@ public class BoxJSONParser implements IBoxJSONParser {
     @Override
     public String convertBoxObjectToJSONString(Object object) throws BoxJSONException {
         try {
-            return getObjectMapper().writeValueAsString(object);
+            return mWriter.writeValueAsString(object);
         } catch (IOException e) {
             throw new BoxJSONException(e);
         }
     }
 
+    /**
+     * @return a generator in the format of this parser, UTF-8 for JSON, writing to the given stream, with the box
+     *         object mapping
+     * @since 7.3
+     */
+    public JsonGenerator createJsonGenerator(OutputStream outputStream) throws IOException {
+        return getObjectMapper().getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+    }
+
+    /**
+     * Write the object as the next value of the generator.
+     *
+     * @since 7.3
+     */
+    public void writeBoxObject(JsonGenerator jg, Object object) throws IOException {
+        mValueWriter.writeValue(jg, object);
+    }
+
     @Override
     public <T> T parseIntoBoxObject(InputStream inputStream, Class<T> theClass) throws BoxJSONException {
         try {
-            JsonFactory jsonFactory = new JsonFactory();
-            JsonParser jp = jsonFactory.createJsonParser(inputStream);
-            return getObjectMapper().readValue(jp, theClass);
+            return getReader(theClass).readValue(inputStream);
         } catch (IOException e) {
             throw new BoxJSONException(e);
         }
@@ -90,11 +163,21 @@ public class BoxJSONParser implements IBoxJSONParser {
     @Override
     public <T> T parseIntoBoxObject(String jsonString, Class<T> theClass) throws BoxJSONException {
         try {
-            JsonFactory jsonFactory = new JsonFactory();
-            JsonParser jp = jsonFactory.createJsonParser(jsonString);
-            return getObjectMapper().readValue(jp, theClass);
+            return getReader(theClass).readValue(jsonString);
         } catch (IOException e) {
             throw new BoxJSONException(e);
         }
     }
+
+    protected ObjectReader getReader(Class<?> theClass) {
+        ObjectReader reader = mReaders.get(theClass);
+        if (reader == null) {
+            reader = getObjectMapper().reader(theClass);
+            ObjectReader previous = mReaders.putIfAbsent(theClass, reader);
+            if (previous != null) {
+                reader = previous;
+            }
+        }
+        return reader;
+    }
 }
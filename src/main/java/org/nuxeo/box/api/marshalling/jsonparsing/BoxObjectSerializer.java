@@ -0,0 +1,226 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.marshalling.jsonparsing;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.nuxeo.box.api.marshalling.dao.BoxCollaboration;
+import org.nuxeo.box.api.marshalling.dao.BoxItem;
+import org.nuxeo.box.api.marshalling.dao.BoxObject;
+import org.nuxeo.box.api.marshalling.dao.BoxTypedObject;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serializer of a box object class reading the fields straight from the box object instead of calling their getters.
+ * <p>
+ * The properties, their order and their inclusion are the ones of the bean serializer Jackson built for the class, so
+ * the output is the same. Only the properties of an explicit {@link JsonProperty} getter of a box object are read
+ * directly, as those getters all return {@link BoxObject#getValue(String)} of the property name; any other property
+ * goes through the bean property writer.
+ * <p>
+ * The mini objects referenced by an object, such as its parent, path collection or users, are written from a
+ * {@link BoxFragmentCache} when they are flat enough to be cached.
+ *
+ * @since 7.3
+ */
+public class BoxObjectSerializer extends StdSerializer<BoxObject> implements ResolvableSerializer {
+
+    /**
+     * Property written by its bean property writer
+     */
+    protected static final int WRITER = 0;
+
+    /**
+     * Property read from the box object, written with the serializer of its runtime class
+     */
+    protected static final int VALUE = 1;
+
+    /**
+     * Collection of typed box objects read from the box object, each written with its type id
+     */
+    protected static final int TYPED_ELEMENTS = 2;
+
+    /**
+     * Properties referencing mini objects, written from the fragment cache
+     */
+    protected static final Set<String> FRAGMENT_PROPERTIES = new HashSet<>(Arrays.asList(BoxItem.FIELD_PARENT,
+            BoxItem.FIELD_PATH_COLLECTION, BoxItem.FIELD_CREATED_BY, BoxItem.FIELD_MODIFIED_BY,
+            BoxItem.FIELD_OWNED_BY, BoxCollaboration.FIELD_ACCESSIBLE_BY, BoxCollaboration.FIELD_FOLDER));
+
+    /**
+     * Serializer provider attribute set while writing the value of a fragment property
+     */
+    protected static final Object FRAGMENTS_ATTRIBUTE = BoxFragmentCache.class;
+
+    protected final JsonSerializer<Object> beanSerializer;
+
+    protected final BeanPropertyWriter[] properties;
+
+    protected final int[] kinds;
+
+    protected final boolean[] fragmentProperties;
+
+    protected final boolean anyGetter;
+
+    protected final BoxFragmentCache fragments;
+
+    /**
+     * @param fragments the cache of the mini objects fragments, null to write them all
+     */
+    @SuppressWarnings("unchecked")
+    public BoxObjectSerializer(Class<? extends BoxObject> type, JsonSerializer<?> beanSerializer,
+            List<BeanPropertyWriter> properties, boolean anyGetter, BoxFragmentCache fragments) {
+        super((Class<BoxObject>) type);
+        this.beanSerializer = (JsonSerializer<Object>) beanSerializer;
+        this.properties = properties.toArray(new BeanPropertyWriter[properties.size()]);
+        this.anyGetter = anyGetter;
+        this.fragments = fragments;
+        kinds = new int[this.properties.length];
+        fragmentProperties = new boolean[this.properties.length];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = getKind(this.properties[i]);
+            fragmentProperties[i] = fragments != null && kinds[i] != WRITER
+                    && FRAGMENT_PROPERTIES.contains(this.properties[i].getName());
+        }
+    }
+
+    protected static int getKind(BeanPropertyWriter property) {
+        AnnotatedMember member = property.getMember();
+        if (property.hasSerializer() || member == null || member.getAnnotation(JsonProperty.class) == null
+                || !BoxObject.class.isAssignableFrom(member.getDeclaringClass())) {
+            return WRITER;
+        }
+        JavaType type = property.getType();
+        if (type.isCollectionLikeType()
+                && BoxTypedObject.class.isAssignableFrom(type.getContentType().getRawClass())) {
+            return TYPED_ELEMENTS;
+        }
+        return VALUE;
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        // Resolves the null serializers of the property writers, shared with the bean serializer
+        if (beanSerializer instanceof ResolvableSerializer) {
+            ((ResolvableSerializer) beanSerializer).resolve(provider);
+        }
+    }
+
+    @Override
+    public void serialize(BoxObject value, JsonGenerator jg, SerializerProvider provider) throws IOException {
+        jg.writeStartObject();
+        serializeFields(value, jg, provider);
+        jg.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(final BoxObject value, JsonGenerator jg, final SerializerProvider provider,
+            final TypeSerializer typeSer) throws IOException {
+        if (fragments != null && provider.getAttribute(FRAGMENTS_ATTRIBUTE) != null
+                && fragments.write(jg, value, new BoxFragmentCache.Encoder() {
+                    @Override
+                    public void encode(JsonGenerator fragment) throws IOException {
+                        writeTypedObject(value, fragment, provider, typeSer);
+                    }
+                })) {
+            return;
+        }
+        writeTypedObject(value, jg, provider, typeSer);
+    }
+
+    protected void writeTypedObject(BoxObject value, JsonGenerator jg, SerializerProvider provider,
+            TypeSerializer typeSer) throws IOException {
+        typeSer.writeTypePrefixForObject(value, jg);
+        serializeFields(value, jg, provider);
+        typeSer.writeTypeSuffixForObject(value, jg);
+    }
+
+    protected void serializeFields(BoxObject bean, JsonGenerator jg, SerializerProvider provider)
+            throws IOException {
+        for (int i = 0; i < properties.length; i++) {
+            BeanPropertyWriter property = properties[i];
+            Object value = kinds[i] != WRITER ? bean.getValue(property.getName()) : null;
+            if (kinds[i] == WRITER || kinds[i] == TYPED_ELEMENTS && value != null && !(value instanceof Collection)) {
+                serializeWithWriter(property, bean, jg, provider);
+            } else if (value == null) {
+                if (!property.willSuppressNulls()) {
+                    jg.writeFieldName(property.getSerializedName());
+                    provider.defaultSerializeNull(jg);
+                }
+            } else if (kinds[i] == TYPED_ELEMENTS) {
+                jg.writeFieldName(property.getSerializedName());
+                jg.writeStartArray();
+                for (Object element : (Collection<?>) value) {
+                    if (element == null) {
+                        provider.defaultSerializeNull(jg);
+                    } else {
+                        provider.defaultSerializeValue(element, jg);
+                    }
+                }
+                jg.writeEndArray();
+            } else if (fragmentProperties[i] && provider.getAttribute(FRAGMENTS_ATTRIBUTE) == null) {
+                jg.writeFieldName(property.getSerializedName());
+                provider.setAttribute(FRAGMENTS_ATTRIBUTE, Boolean.TRUE);
+                try {
+                    provider.defaultSerializeValue(value, jg);
+                } finally {
+                    provider.setAttribute(FRAGMENTS_ATTRIBUTE, null);
+                }
+            } else {
+                jg.writeFieldName(property.getSerializedName());
+                provider.defaultSerializeValue(value, jg);
+            }
+        }
+        if (anyGetter) {
+            for (Map.Entry<String, Object> entry : bean.properties().entrySet()) {
+                jg.writeFieldName(entry.getKey());
+                if (entry.getValue() == null) {
+                    provider.defaultSerializeNull(jg);
+                } else {
+                    provider.defaultSerializeValue(entry.getValue(), jg);
+                }
+            }
+        }
+    }
+
+    protected void serializeWithWriter(BeanPropertyWriter property, BoxObject bean, JsonGenerator jg,
+            SerializerProvider provider) throws IOException {
+        try {
+            property.serializeAsField(bean, jg, provider);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new JsonMappingException("Failed to serialize " + property.getName(), e);
+        }
+    }
+}
@@ -17,6 +17,7 @@ import org.nuxeo.box.api.marshalling.dao.BoxRealTimeServer;
 import org.nuxeo.box.api.marshalling.dao.BoxResourceType;
 import org.nuxeo.box.api.marshalling.dao.BoxServerError;
 import org.nuxeo.box.api.marshalling.dao.BoxTypedObject;
+import org.nuxeo.box.api.marshalling.dao.BoxUploadSession;
 import org.nuxeo.box.api.marshalling.dao.BoxUser;
 import org.nuxeo.box.api.marshalling.dao.BoxWebLink;
 import org.nuxeo.box.api.marshalling.interfaces.IBoxType;
@@ -79,6 +80,8 @@ public class BoxResourceHub extends BaseBoxResourceHub {
             return BoxLock.class;
         case ERROR:
             return BoxServerError.class;
+        case UPLOAD_SESSION:
+            return BoxUploadSession.class;
         case ITEMS:
         case FILES:
         case USERS:
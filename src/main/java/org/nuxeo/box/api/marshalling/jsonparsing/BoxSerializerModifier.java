@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.marshalling.jsonparsing;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.ser.BeanSerializerBuilder;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import org.nuxeo.box.api.marshalling.dao.BoxCollaboration;
+import org.nuxeo.box.api.marshalling.dao.BoxCollection;
+import org.nuxeo.box.api.marshalling.dao.BoxComment;
+import org.nuxeo.box.api.marshalling.dao.BoxFile;
+import org.nuxeo.box.api.marshalling.dao.BoxFolder;
+import org.nuxeo.box.api.marshalling.dao.BoxGroup;
+import org.nuxeo.box.api.marshalling.dao.BoxObject;
+import org.nuxeo.box.api.marshalling.dao.BoxUser;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Replaces the bean serializers of the box types written on every response by {@link BoxObjectSerializer}s built
+ * from the same properties.
+ *
+ * @since 7.3
+ */
+public class BoxSerializerModifier extends BeanSerializerModifier {
+
+    protected static final Set<Class<?>> BOX_TYPES = new HashSet<Class<?>>(Arrays.asList(BoxFile.class,
+            BoxFolder.class, BoxUser.class, BoxGroup.class, BoxCollection.class, BoxCollaboration.class,
+            BoxComment.class));
+
+    /**
+     * Builders of the bean serializers being built, until they are replaced
+     */
+    protected final ConcurrentMap<Class<?>, BeanSerializerBuilder> builders = new ConcurrentHashMap<>();
+
+    protected final BoxFragmentCache fragments;
+
+    /**
+     * @param fragments the cache of the mini objects fragments, null to write them all
+     */
+    public BoxSerializerModifier(BoxFragmentCache fragments) {
+        this.fragments = fragments;
+    }
+
+    @Override
+    public BeanSerializerBuilder updateBuilder(SerializationConfig config, BeanDescription beanDesc,
+            BeanSerializerBuilder builder) {
+        if (BOX_TYPES.contains(beanDesc.getBeanClass())) {
+            builders.put(beanDesc.getBeanClass(), builder);
+        }
+        return builder;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc,
+            JsonSerializer<?> serializer) {
+        BeanSerializerBuilder builder = builders.remove(beanDesc.getBeanClass());
+        if (builder == null || builder.getProperties() == null) {
+            return serializer;
+        }
+        return new BoxObjectSerializer((Class<? extends BoxObject>) beanDesc.getBeanClass(), serializer,
+                builder.getProperties(), builder.getAnyGetter() != null, fragments);
+    }
+}
@@ -19,9 +19,9 @@ package org.nuxeo.box.api.search;
 
 import com.google.common.base.Objects;
 import org.nuxeo.box.api.BoxConstants;
-import org.nuxeo.box.api.marshalling.exceptions.BoxJSONException;
+import org.nuxeo.box.api.service.BoxCollectionQuery;
 import org.nuxeo.box.api.service.BoxService;
-import org.nuxeo.ecm.core.api.ClientException;
+import org.nuxeo.box.api.utils.BoxCompression;
 import org.nuxeo.ecm.webengine.model.WebObject;
 import org.nuxeo.ecm.webengine.model.impl.AbstractResource;
 import org.nuxeo.ecm.webengine.model.impl.ResourceTypeImpl;
@@ -38,7 +38,7 @@ import javax.ws.rs.core.MediaType;
  * @since 5.9.3
  */
 @WebObject(type = "search")
-@Produces({ MediaType.APPLICATION_JSON })
+@Produces({ MediaType.APPLICATION_JSON, BoxConstants.APPLICATION_SMILE, BoxConstants.APPLICATION_CBOR })
 public class BoxSearchObject extends AbstractResource<ResourceTypeImpl> {
 
     BoxService boxService;
@@ -51,13 +51,26 @@ public class BoxSearchObject extends AbstractResource<ResourceTypeImpl> {
     /**
      * The string in query to search for; can be matched against item names, descriptions, text content of a file, and
      * other fields of the different item types.
+     * <p>
+     * Offset pages are sorted by relevance, marker pages by id.
      */
     @GET
-    public String doSearch(@QueryParam("query") String query, @QueryParam("offset") String offset,
-            @QueryParam("limit") String limit) throws ClientException, BoxJSONException {
-        return boxService.toJSONString(boxService.searchBox(query, ctx.getCoreSession(),
-                Objects.firstNonNull(limit, BoxConstants.BOX_LIMIT),
-                Objects.firstNonNull(offset, BoxConstants.BOX_OFFSET)));
+    public Object doSearch(@QueryParam("query") String query, @QueryParam("offset") String offset,
+            @QueryParam("limit") String limit, @QueryParam("fields") String fields,
+            @QueryParam("usemarker") boolean useMarker, @QueryParam("marker") String marker) {
+        BoxCollectionQuery results;
+        if (useMarker || marker != null) {
+            results = boxService.searchBoxFromMarker(query, ctx.getCoreSession(),
+                    Objects.firstNonNull(limit, BoxConstants.BOX_LIMIT), marker,
+                    Objects.firstNonNull(fields, BoxConstants.BOX_FIELDS));
+        } else {
+            results = boxService.searchBoxQuery(query, ctx.getCoreSession(),
+                    Objects.firstNonNull(limit, BoxConstants.BOX_LIMIT),
+                    Objects.firstNonNull(offset, BoxConstants.BOX_OFFSET),
+                    Objects.firstNonNull(fields, BoxConstants.BOX_FIELDS));
+        }
+        // Run the query before the response is committed, only its serialization being streamed
+        return BoxCompression.compress(ctx, "search", results.execute());
     }
 
 }
@@ -0,0 +1,220 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.nuxeo.box.api.marshalling.dao.BoxCollection;
+import org.nuxeo.box.api.marshalling.dao.BoxTypedObject;
+import org.nuxeo.box.api.marshalling.jsonparsing.BoxJSONParser;
+import org.nuxeo.ecm.core.api.ClientException;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A prepared box collection: its entries are only built when it is run, either into a {@link BoxCollection} or into
+ * a result written to an output stream. Resources {@link #execute()} it before returning it as their entity, so that
+ * the query errors are raised before the response status is committed, and only the serialization is streamed.
+ *
+ * @since 7.3
+ */
+public abstract class BoxCollectionQuery implements StreamingOutput {
+
+    /**
+     * Receives the entries of the collection as they are built, and its other fields.
+     */
+    public interface Handler {
+
+        void addEntry(BoxTypedObject entry);
+
+        void setField(String field, Object value);
+    }
+
+    protected final BoxJSONParser parser;
+
+    /**
+     * Result of the query once executed
+     */
+    protected Result result;
+
+    protected BoxCollectionQuery(BoxJSONParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Run the query and hand each entry to the handler.
+     */
+    public abstract void run(Handler handler) throws ClientException;
+
+    /**
+     * Run the query now and keep its result for {@link #write(OutputStream)}.
+     *
+     * @return this query
+     */
+    public BoxCollectionQuery execute() throws ClientException {
+        Result executed = new Result();
+        run(executed);
+        result = executed;
+        return this;
+    }
+
+    /**
+     * @return the whole collection, held in memory
+     */
+    public BoxCollection getBoxCollection() throws ClientException {
+        final Map<String, Object> collectionProperties = new HashMap<>();
+        final List<BoxTypedObject> entries = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void addEntry(BoxTypedObject entry) {
+                entries.add(entry);
+            }
+
+            @Override
+            public void setField(String field, Object value) {
+                collectionProperties.put(field, value);
+            }
+        };
+        if (result != null) {
+            result.replay(handler);
+        } else {
+            run(handler);
+        }
+        collectionProperties.put(BoxCollection.FIELD_ENTRIES, entries);
+        return new BoxCollection(Collections.unmodifiableMap(collectionProperties));
+    }
+
+    /**
+     * Write the result of the query, executed first if it has not been yet.
+     */
+    @Override
+    public void write(OutputStream output) throws IOException {
+        if (result == null) {
+            execute();
+        }
+        JsonGenerator jg = parser.createJsonGenerator(output);
+        JsonHandler handler = new JsonHandler(jg);
+        jg.writeStartObject();
+        try {
+            result.replay(handler);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        handler.closeEntries();
+        jg.writeEndObject();
+        jg.flush();
+    }
+
+    /**
+     * Entries and other fields of a run, the fields being kept in their order before and after the entries.
+     */
+    protected static class Result implements Handler {
+
+        protected final Map<String, Object> fieldsBefore = new LinkedHashMap<>();
+
+        protected final List<BoxTypedObject> entries = new ArrayList<>();
+
+        protected final Map<String, Object> fieldsAfter = new LinkedHashMap<>();
+
+        @Override
+        public void addEntry(BoxTypedObject entry) {
+            entries.add(entry);
+        }
+
+        @Override
+        public void setField(String field, Object value) {
+            (entries.isEmpty() ? fieldsBefore : fieldsAfter).put(field, value);
+        }
+
+        protected void replay(Handler handler) {
+            for (Map.Entry<String, Object> field : fieldsBefore.entrySet()) {
+                handler.setField(field.getKey(), field.getValue());
+            }
+            for (BoxTypedObject entry : entries) {
+                handler.addEntry(entry);
+            }
+            for (Map.Entry<String, Object> field : fieldsAfter.entrySet()) {
+                handler.setField(field.getKey(), field.getValue());
+            }
+        }
+    }
+
+    /**
+     * Write the entries array as the entries come, the other fields around it.
+     */
+    protected class JsonHandler implements Handler {
+
+        protected final JsonGenerator jg;
+
+        protected boolean entriesStarted;
+
+        protected boolean entriesEnded;
+
+        protected JsonHandler(JsonGenerator jg) {
+            this.jg = jg;
+        }
+
+        @Override
+        public void addEntry(BoxTypedObject entry) {
+            try {
+                if (!entriesStarted) {
+                    jg.writeArrayFieldStart(BoxCollection.FIELD_ENTRIES);
+                    entriesStarted = true;
+                }
+                parser.writeBoxObject(jg, entry);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void setField(String field, Object value) {
+            if (value == null) {
+                return;
+            }
+            try {
+                // Fields come either before or after all the entries
+                if (entriesStarted) {
+                    closeEntries();
+                }
+                jg.writeFieldName(field);
+                parser.writeBoxObject(jg, value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        protected void closeEntries() throws IOException {
+            if (entriesEnded) {
+                return;
+            }
+            if (!entriesStarted) {
+                jg.writeArrayFieldStart(BoxCollection.FIELD_ENTRIES);
+            }
+            jg.writeEndArray();
+            entriesEnded = true;
+        }
+    }
+}
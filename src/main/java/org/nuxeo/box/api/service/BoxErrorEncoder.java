@@ -0,0 +1,101 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.service;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.nuxeo.box.api.marshalling.exceptions.NXBoxJsonException;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Encoder of the JSON error responses from precomputed templates, writing the same fields in the same order as an
+ * {@link NXBoxJsonException} written by Jackson. Only the code and message of the error are escaped on each call.
+ * <p>
+ * The errors encoded are counted per HTTP status.
+ *
+ * @since 7.3
+ */
+public class BoxErrorEncoder {
+
+    /**
+     * Statuses with a precomputed template and a counter
+     */
+    protected static final int MAX_STATUS = 600;
+
+    protected static final String PREFIX = "{\"type\":\"error\",\"code\":";
+
+    protected static final String SUFFIX = ",\"request_id\":null}";
+
+    protected static final String NULL = "null";
+
+    /**
+     * Fragments between the code and the message, per status
+     */
+    protected final String[] statusTemplates = new String[MAX_STATUS];
+
+    protected final AtomicLongArray counts = new AtomicLongArray(MAX_STATUS);
+
+    public BoxErrorEncoder() {
+        for (int status = 0; status < MAX_STATUS; status++) {
+            statusTemplates[status] = newStatusTemplate(status);
+        }
+    }
+
+    protected static String newStatusTemplate(int status) {
+        return ",\"status\":" + status + ",\"help_url\":null,\"message\":";
+    }
+
+    /**
+     * @return the JSON error response of the given status, code and detailed message
+     */
+    public String encode(int status, String code, String message) {
+        boolean known = status >= 0 && status < MAX_STATUS;
+        if (known) {
+            counts.incrementAndGet(status);
+        }
+        String template = known ? statusTemplates[status] : newStatusTemplate(status);
+        StringBuilder json = new StringBuilder(PREFIX.length() + template.length() + SUFFIX.length()
+                + length(code) + length(message));
+        json.append(PREFIX);
+        appendString(json, code);
+        json.append(template);
+        appendString(json, message);
+        json.append(SUFFIX);
+        return json.toString();
+    }
+
+    protected static int length(String value) {
+        return value == null ? NULL.length() : value.length() + 2;
+    }
+
+    protected static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append(NULL);
+            return;
+        }
+        json.append('"');
+        json.append(JsonStringEncoder.getInstance().quoteAsString(value));
+        json.append('"');
+    }
+
+    /**
+     * @return the number of errors of the given status encoded so far
+     */
+    public long getCount(int status) {
+        return status >= 0 && status < MAX_STATUS ? counts.get(status) : 0;
+    }
+}
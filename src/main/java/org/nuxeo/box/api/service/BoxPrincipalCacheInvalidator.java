@@ -0,0 +1,41 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.service;
+
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.services.event.Event;
+import org.nuxeo.runtime.services.event.EventListener;
+
+/**
+ * Evict the cached box users and groups when the user manager notifies a user or group change.
+ *
+ * @since 7.3
+ */
+public class BoxPrincipalCacheInvalidator implements EventListener {
+
+    @Override
+    public boolean aboutToHandleEvent(Event event) {
+        return true;
+    }
+
+    @Override
+    public void handleEvent(Event event) {
+        BoxService boxService = Framework.getLocalService(BoxService.class);
+        Object data = event.getData();
+        boxService.invalidateBoxPrincipals(data instanceof String ? (String) data : null);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.service;
+
+import org.nuxeo.box.api.marshalling.dao.BoxGroup;
+import org.nuxeo.box.api.marshalling.dao.BoxTypedObject;
+import org.nuxeo.box.api.marshalling.dao.BoxUser;
+import org.nuxeo.ecm.webengine.WebEngine;
+import org.nuxeo.ecm.webengine.model.WebContext;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request scoped cache shared by all the box adapters of a same request. It is bound to the active WebEngine
+ * context: outside of a request, a new empty cache is returned on each call.
+ *
+ * @since 7.3
+ */
+public class BoxRequestCache {
+
+    protected static final String PROPERTY = BoxRequestCache.class.getName();
+
+    /**
+     * Ancestor ids by document or ancestor id, from the parent up to the root
+     */
+    protected final Map<String, List<String>> ancestorIds = new HashMap<>();
+
+    /**
+     * Path collection entries by document id
+     */
+    protected final Map<String, BoxTypedObject> ancestors = new HashMap<>();
+
+    /**
+     * Box users already resolved during the request by user name
+     */
+    protected final Map<String, BoxUser> users = new HashMap<>();
+
+    /**
+     * Box groups already resolved during the request by group name
+     */
+    protected final Map<String, BoxGroup> groups = new HashMap<>();
+
+    /**
+     * Box users or groups of the collaborations already resolved during the request by principal name
+     */
+    protected final Map<String, BoxUser> collaborators = new HashMap<>();
+
+    /**
+     * Tag labels of the current user by document id
+     */
+    protected final Map<String, String[]> tags = new HashMap<>();
+
+    /**
+     * @return the cache of the current request
+     */
+    public static BoxRequestCache get() {
+        WebContext ctx = WebEngine.getActiveContext();
+        if (ctx == null) {
+            return new BoxRequestCache();
+        }
+        BoxRequestCache requestCache = (BoxRequestCache) ctx.getProperty(PROPERTY);
+        if (requestCache == null) {
+            requestCache = new BoxRequestCache();
+            ctx.setProperty(PROPERTY, requestCache);
+        }
+        return requestCache;
+    }
+
+    public Map<String, List<String>> getAncestorIds() {
+        return ancestorIds;
+    }
+
+    public Map<String, BoxTypedObject> getAncestors() {
+        return ancestors;
+    }
+
+    public Map<String, BoxUser> getUsers() {
+        return users;
+    }
+
+    public Map<String, BoxGroup> getGroups() {
+        return groups;
+    }
+
+    public Map<String, BoxUser> getCollaborators() {
+        return collaborators;
+    }
+
+    public Map<String, String[]> getTags() {
+        return tags;
+    }
+}
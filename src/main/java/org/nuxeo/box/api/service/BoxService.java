@@ -26,6 +26,7 @@ import org.nuxeo.box.api.marshalling.dao.BoxFolder;
 import org.nuxeo.box.api.marshalling.dao.BoxGroup;
 import org.nuxeo.box.api.marshalling.dao.BoxObject;
 import org.nuxeo.box.api.marshalling.dao.BoxTypedObject;
+import org.nuxeo.box.api.marshalling.dao.BoxUploadSession;
 import org.nuxeo.box.api.marshalling.dao.BoxUser;
 import org.nuxeo.box.api.marshalling.exceptions.BoxJSONException;
 import org.nuxeo.ecm.core.api.ClientException;
@@ -36,6 +37,7 @@ import org.nuxeo.ecm.core.api.NuxeoGroup;
 import org.nuxeo.ecm.core.api.NuxeoPrincipal;
 import org.nuxeo.ecm.core.api.security.ACE;
 
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -47,16 +49,84 @@ public interface BoxService {
 
     BiMap<String, String> getNxBoxRole();
 
-    BoxCollection searchBox(String term, CoreSession session, String limit, String offset) throws ClientException;
+    BoxCollection searchBox(String term, CoreSession session, String limit, String offset, String fields)
+            throws ClientException;
+
+    /**
+     * @return the search page, built only when the query is run or written
+     * @since 7.3
+     */
+    BoxCollectionQuery searchBoxQuery(String term, CoreSession session, String limit, String offset, String fields);
+
+    /**
+     * Search page starting after the given marker, the first one if null. Results are sorted by id, not by relevance
+     * as the offset pages of {@link #searchBoxQuery}: the fulltext score cannot be compared in a query, so it cannot
+     * be resumed from a marker. The pages are disjoint and together hold all the results of the offset pages.
+     *
+     * @since 7.3
+     */
+    BoxCollectionQuery searchBoxFromMarker(String term, CoreSession session, String limit, String marker,
+            String fields);
+
+    /**
+     * @return the item collection of the children of the given folder
+     * @since 7.3
+     */
+    BoxCollection getBoxItemCollection(CoreSession session, String folderId, String limit, String offset,
+            String fields) throws ClientException;
+
+    /**
+     * @return the item collection page, built only when the query is run or written
+     * @since 7.3
+     */
+    BoxCollectionQuery getBoxItemCollectionQuery(CoreSession session, String folderId, String limit, String offset,
+            String fields);
+
+    /**
+     * Item collection page starting after the given marker, the first one if null. Items are sorted by name and id.
+     *
+     * @since 7.3
+     */
+    BoxCollectionQuery getBoxItemCollectionFromMarker(CoreSession session, String folderId, String limit,
+            String marker, String fields);
 
     List<BoxTypedObject> getBoxDocumentCollection(DocumentModelList documentModels, String fields)
             throws ClientException;
 
+    /**
+     * @return the path collection entries of the document, from its parent up to the root
+     * @since 7.3
+     */
+    List<BoxTypedObject> getBoxAncestors(CoreSession session, DocumentModel doc) throws ClientException;
+
+    /**
+     * Load in one query the path collection entries of all the given documents which are not already known in the
+     * current request.
+     *
+     * @since 7.3
+     */
+    void fetchBoxAncestors(CoreSession session, List<DocumentModel> docs) throws ClientException;
+
+    /**
+     * Load in one query the tags of the current user on all the given documents which are not already known in the
+     * current request.
+     *
+     * @since 7.3
+     */
+    void fetchBoxTags(CoreSession session, List<DocumentModel> docs) throws ClientException;
+
     BoxCollaboration getBoxCollaboration(BoxFolderAdapter boxItem, ACE ace, String collaborationId)
             throws ClientException;
 
     String toJSONString(BoxObject boxObject) throws BoxJSONException;
 
+    /**
+     * @return the response entity of the box object in the format accepted by the client of the current request: a
+     *         JSON string, or a streaming output of its Smile or CBOR encoding
+     * @since 7.3
+     */
+    Object getBoxEntity(BoxObject boxObject) throws BoxJSONException;
+
     String getBoxId(DocumentModel doc);
 
     String getBoxSequenceId(DocumentModel doc);
@@ -65,10 +135,48 @@ public interface BoxService {
 
     String getBoxName(DocumentModel doc);
 
+    /**
+     * @return the SHA-1 of the file content computed on upload, or the Nuxeo digest of the content if none
+     * @since 7.3
+     */
+    String getBoxSha1(DocumentModel doc);
+
+    /**
+     * @param digest the hex SHA-1 or Nuxeo digest of a content
+     * @return a document readable in the session with this content, or null if none
+     * @since 7.3
+     */
+    DocumentModel getBoxContentDocument(CoreSession session, String digest) throws ClientException;
+
     BoxUser fillUser(NuxeoPrincipal creator);
 
     BoxGroup fillGroup(NuxeoGroup group);
 
+    /**
+     * @return the cached box user of the given user name, a "system" user if unknown
+     * @since 7.3
+     */
+    BoxUser getBoxUser(String username);
+
+    /**
+     * @return the cached box group of the given group name, a "system" group if unknown
+     * @since 7.3
+     */
+    BoxGroup getBoxGroup(String groupname);
+
+    /**
+     * @return the cached box user of the given principal name if it is a user, its box group otherwise
+     * @since 7.3
+     */
+    BoxUser getBoxCollaborator(String name);
+
+    /**
+     * Evict the cached box users and groups of the given principal name, or all of them if null.
+     *
+     * @since 7.3
+     */
+    void invalidateBoxPrincipals(String name);
+
     BoxFolder getBoxFolder(String jsonBoxFolder) throws BoxJSONException;
 
     BoxFile getBoxFile(String jsonBoxFile) throws BoxJSONException;
@@ -77,9 +185,53 @@ public interface BoxService {
 
     BoxCollaboration getBoxCollaboration(String jsonBoxCollaboration) throws BoxJSONException;
 
+    /**
+     * Parse a request body as it is read, in the format of its Content-Type, rejecting it with a 413 status beyond the
+     * maximum body size.
+     *
+     * @since 7.3
+     */
+    BoxFolder getBoxFolder(InputStream jsonBoxFolder) throws BoxJSONException;
+
+    /**
+     * @see #getBoxFolder(InputStream)
+     * @since 7.3
+     */
+    BoxFile getBoxFile(InputStream jsonBoxFile) throws BoxJSONException;
+
+    /**
+     * @see #getBoxFolder(InputStream)
+     * @since 7.3
+     */
+    BoxComment getBoxComment(InputStream jsonBoxComment) throws BoxJSONException;
+
+    /**
+     * @see #getBoxFolder(InputStream)
+     * @since 7.3
+     */
+    BoxCollaboration getBoxCollaboration(InputStream jsonBoxCollaboration) throws BoxJSONException;
+
+    /**
+     * @see #getBoxFolder(InputStream)
+     * @since 7.3
+     */
+    BoxUploadSession getBoxUploadSession(InputStream jsonBoxUploadSession) throws BoxJSONException;
+
+    /**
+     * @return the upload sessions in progress
+     * @since 7.3
+     */
+    BoxUploadSessions getUploadSessions();
+
     String getJSONFromBox(BoxTypedObject boxTypedObject) throws BoxJSONException;
 
     String getJSONBoxException(Exception e, int status);
 
+    /**
+     * @return the number of JSON errors of the given status returned since the service started
+     * @since 7.3
+     */
+    long getBoxErrorCount(int status);
+
     String[] getCollaborationArrayIds(String collaborationId);
 }
@@ -16,10 +16,13 @@
  */
 package org.nuxeo.box.api.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.nuxeo.box.api.BoxConstants;
 import org.nuxeo.box.api.adapter.BoxAdapter;
 import org.nuxeo.box.api.folder.adapter.BoxFolderAdapter;
@@ -33,38 +36,68 @@ import org.nuxeo.box.api.marshalling.dao.BoxGroup;
 import org.nuxeo.box.api.marshalling.dao.BoxItem;
 import org.nuxeo.box.api.marshalling.dao.BoxObject;
 import org.nuxeo.box.api.marshalling.dao.BoxTypedObject;
+import org.nuxeo.box.api.marshalling.dao.BoxUploadSession;
 import org.nuxeo.box.api.marshalling.dao.BoxUser;
 import org.nuxeo.box.api.marshalling.exceptions.BoxJSONException;
 import org.nuxeo.box.api.marshalling.exceptions.BoxRestException;
-import org.nuxeo.box.api.marshalling.exceptions.NXBoxJsonException;
+import org.nuxeo.box.api.marshalling.jsonparsing.BoxDataFormat;
 import org.nuxeo.box.api.marshalling.jsonparsing.BoxJSONParser;
 import org.nuxeo.box.api.marshalling.jsonparsing.BoxResourceHub;
+import org.nuxeo.box.api.utils.BoxLimitedInputStream;
 import org.apache.commons.lang.StringUtils;
 import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.ClientException;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.ecm.core.api.IterableQueryResult;
 import org.nuxeo.ecm.core.api.NuxeoGroup;
 import org.nuxeo.ecm.core.api.NuxeoPrincipal;
+import org.nuxeo.ecm.core.api.UnrestrictedSessionRunner;
+import org.nuxeo.ecm.core.api.impl.DocumentModelListImpl;
 import org.nuxeo.ecm.core.api.security.ACE;
 import org.nuxeo.ecm.core.api.security.SecurityConstants;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.ecm.core.schema.DocumentType;
+import org.nuxeo.ecm.core.schema.FacetNames;
+import org.nuxeo.ecm.core.schema.SchemaManager;
 import org.nuxeo.ecm.platform.usermanager.UserManager;
+import org.nuxeo.ecm.webengine.WebEngine;
+import org.nuxeo.ecm.webengine.model.WebContext;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.model.ComponentContext;
+import org.nuxeo.runtime.model.DefaultComponent;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Box Service Utils
  *
  * @since 5.9.3
  */
-public class BoxServiceImpl implements BoxService {
+public class BoxServiceImpl extends DefaultComponent implements BoxService {
 
     /**
      * The mapping between Nuxeo ACLs and Box Collaboration
@@ -76,30 +109,345 @@ public class BoxServiceImpl implements BoxService {
         return nxBoxRole;
     }
 
+    /**
+     * Query type of the tag service, resolving tag:label and relation:source
+     */
+    protected static final String TAG_QUERY_TYPE = "NXTAG";
+
+    protected static final String DIGEST_COLUMN = "file:content/digest";
+
+    protected static final int SHA1_HEX_LENGTH = 40;
+
+    /**
+     * Documents checked for a content digest, as the SHA-1 of a document is stale once its content changed
+     */
+    protected static final long CONTENT_QUERY_LIMIT = 10;
+
+    /**
+     * Columns needed to build the mini items of a collection
+     */
+    protected static final String[] ITEM_COLUMNS = { NXQL.ECM_UUID, NXQL.ECM_NAME, NXQL.ECM_PRIMARYTYPE,
+            NXQL.ECM_ISCHECKEDIN, "uid:major_version", "uid:minor_version", DIGEST_COLUMN,
+            BoxConstants.BOX_CONTENT_SHA1, BoxConstants.BOX_CONTENT_MD5 };
+
+    /**
+     * Fields of the path collection entries
+     */
+    protected static final String PATH_ENTRY_FIELDS = BoxTypedObject.FIELD_ID + "," + BoxItem.FIELD_SEQUENCE_ID + ","
+            + BoxItem.FIELD_ETAG + "," + BoxItem.FIELD_NAME;
+
+    protected static final String MARKER_SEPARATOR = ":";
+
+    /**
+     * Resolved box users shared across requests, keyed by user name
+     */
+    protected final Cache<String, BoxUser> userCache;
+
+    /**
+     * Resolved box groups shared across requests, keyed by group name
+     */
+    protected final Cache<String, BoxGroup> groupCache;
+
+    /**
+     * Resolved box users or groups of the collaborations shared across requests, keyed by principal name
+     */
+    protected final Cache<String, BoxUser> collaboratorCache;
+
+    /**
+     * Parser shared by all the requests, built at activation
+     */
+    protected BoxJSONParser boxJSONParser;
+
+    /**
+     * Parsers of each wire format, sharing the box type model
+     */
+    protected final Map<BoxDataFormat, BoxJSONParser> boxParsers = new EnumMap<>(BoxDataFormat.class);
+
+    /**
+     * Encoder and counter of the JSON errors
+     */
+    protected BoxErrorEncoder errorEncoder;
+
+    protected BoxUploadSessions uploadSessions;
+
     public BoxServiceImpl() {
         nxBoxRole = HashBiMap.create();
         nxBoxRole.put(SecurityConstants.EVERYTHING, BoxCollaborationRole.EDITOR);
         nxBoxRole.put(SecurityConstants.READ, BoxCollaborationRole.VIEWER);
         nxBoxRole.put(SecurityConstants.WRITE, BoxCollaborationRole.VIEWER_UPLOADER);
+        long maxSize = Long.parseLong(Framework.getProperty(BoxConstants.BOX_PRINCIPAL_CACHE_MAX_SIZE_PROPERTY,
+                BoxConstants.BOX_PRINCIPAL_CACHE_MAX_SIZE));
+        long ttl = Long.parseLong(Framework.getProperty(BoxConstants.BOX_PRINCIPAL_CACHE_TTL_PROPERTY,
+                BoxConstants.BOX_PRINCIPAL_CACHE_TTL));
+        userCache = newPrincipalCache(maxSize, ttl);
+        groupCache = newPrincipalCache(maxSize, ttl);
+        collaboratorCache = newPrincipalCache(maxSize, ttl);
+    }
+
+    protected static <T extends BoxUser> Cache<String, T> newPrincipalCache(long maxSize, long ttl) {
+        return CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl, TimeUnit.SECONDS).build();
     }
 
     @Override
-    public BoxCollection searchBox(String term, CoreSession session, String limit, String offset)
+    public BoxCollection searchBox(String term, CoreSession session, String limit, String offset, String fields)
             throws ClientException {
-        final Map<String, Object> collectionProperties = new HashMap<>();
-        StringBuilder query = new StringBuilder();
-        query.append("SELECT * FROM " + "Document where ecm:fulltext = '" + term + "'");
-        DocumentModelList documentModels = session.query(query.toString(), null, Long.parseLong(limit),
-                Long.parseLong(offset), false);
+        return searchBoxQuery(term, session, limit, offset, fields).getBoxCollection();
+    }
+
+    @Override
+    public BoxCollectionQuery searchBoxQuery(String term, final CoreSession session, String limit, String offset,
+            final String fields) {
+        final String query = "SELECT * FROM Document WHERE ecm:fulltext = " + NXQL.escapeString(term);
+        final long max = Long.parseLong(limit);
+        final long skip = Long.parseLong(offset);
+        return new BoxCollectionQuery(getBoxJSONParser()) {
+            @Override
+            public void run(Handler handler) throws ClientException {
+                DocumentModelList documentModels = session.query(query, null, max, skip, getCountUpTo());
+                // Negative when the count has been truncated
+                long totalSize = documentModels.totalSize();
+                handler.setField(BoxCollection.FIELD_TOTAL_COUNT, totalSize < 0 ? -1 : (int) totalSize);
+                addBoxSearchEntries(session, documentModels, fields, handler);
+            }
+        };
+    }
+
+    protected void addBoxSearchEntries(CoreSession session, DocumentModelList documentModels, String fields,
+            BoxCollectionQuery.Handler handler) throws ClientException {
+        // Resolve the ancestors and the tags of the whole page at once
+        fetchBoxAncestors(session, documentModels);
+        if (fields == null || BoxConstants.BOX_FIELDS.equals(fields)
+                || Arrays.asList(fields.split(",")).contains(BoxItem.FIELD_TAGS)) {
+            fetchBoxTags(session, documentModels);
+        }
         // Adapt all documents to box document listing to get all properties
-        List<BoxTypedObject> boxDocuments = new ArrayList<>();
         for (DocumentModel doc : documentModels) {
             BoxAdapter boxAdapter = doc.getAdapter(BoxAdapter.class);
-            boxDocuments.add(boxAdapter.getBoxItem());
+            handler.addEntry(boxAdapter.getBoxItem(fields));
         }
-        collectionProperties.put(BoxCollection.FIELD_ENTRIES, boxDocuments);
-        collectionProperties.put(BoxCollection.FIELD_TOTAL_COUNT, documentModels.size());
-        return new BoxCollection(Collections.unmodifiableMap(collectionProperties));
+    }
+
+    @Override
+    public BoxCollectionQuery searchBoxFromMarker(String term, final CoreSession session, String limit,
+            String marker, final String fields) {
+        StringBuilder query = new StringBuilder();
+        query.append("SELECT * FROM Document WHERE ecm:fulltext = ").append(NXQL.escapeString(term));
+        if (marker != null) {
+            query.append(" AND ecm:uuid > ").append(NXQL.escapeString(decodeMarker(marker, 1)[0]));
+        }
+        // The relevance score cannot be compared in the WHERE clause, so the marker pages are sorted by id
+        query.append(" ORDER BY ecm:uuid");
+        final String markerQuery = query.toString();
+        final long max = Long.parseLong(limit);
+        return new BoxCollectionQuery(getBoxJSONParser()) {
+            @Override
+            public void run(Handler handler) throws ClientException {
+                // One more document tells whether there is a next page
+                DocumentModelList documentModels = session.query(markerQuery, null, max + 1, 0, false);
+                boolean hasNext = documentModels.size() > max;
+                if (hasNext) {
+                    documentModels = new DocumentModelListImpl(documentModels.subList(0, (int) max));
+                }
+                addBoxSearchEntries(session, documentModels, fields, handler);
+                if (hasNext) {
+                    handler.setField(BoxCollection.FIELD_NEXT_MARKER,
+                            encodeMarker(documentModels.get(documentModels.size() - 1).getId()));
+                }
+            }
+        };
+    }
+
+    @Override
+    public BoxCollection getBoxItemCollection(CoreSession session, String folderId, String limit, String offset,
+            String fields) throws ClientException {
+        return getBoxItemCollectionQuery(session, folderId, limit, offset, fields).getBoxCollection();
+    }
+
+    @Override
+    public BoxCollectionQuery getBoxItemCollectionQuery(final CoreSession session, String folderId, String limit,
+            String offset, final String fields) {
+        final String childrenClause = " FROM Document WHERE ecm:parentId = " + NXQL.escapeString(folderId);
+        final long max = Long.parseLong(limit);
+        final long skip = Long.parseLong(offset);
+        // Fetch only the columns of the mini items of the page, in the same stable order as the marker pages
+        final String itemQuery = "SELECT " + StringUtils.join(ITEM_COLUMNS, ", ") + childrenClause
+                + " ORDER BY ecm:name, ecm:uuid LIMIT " + max + " OFFSET " + skip;
+        return new BoxCollectionQuery(getBoxJSONParser()) {
+            @Override
+            public void run(Handler handler) throws ClientException {
+                IterableQueryResult children = session.queryAndFetch(itemQuery, NXQL.NXQL);
+                try {
+                    for (Map<String, Serializable> row : children) {
+                        handler.addEntry(getBoxItemEntry(row, fields));
+                    }
+                    handler.setField(BoxCollection.FIELD_TOTAL_COUNT, getTotalCount(session, childrenClause));
+                } finally {
+                    children.close();
+                }
+            }
+        };
+    }
+
+    @Override
+    public BoxCollectionQuery getBoxItemCollectionFromMarker(final CoreSession session, String folderId,
+            String limit, String marker, final String fields) {
+        StringBuilder query = new StringBuilder("SELECT ");
+        query.append(StringUtils.join(ITEM_COLUMNS, ", "));
+        query.append(" FROM Document WHERE ecm:parentId = ");
+        query.append(NXQL.escapeString(folderId));
+        // Resume right after the last item of the previous page
+        if (marker != null) {
+            String[] keys = decodeMarker(marker, 2);
+            String id = NXQL.escapeString(keys[0]);
+            String name = NXQL.escapeString(keys[1]);
+            query.append(" AND (ecm:name > ").append(name);
+            query.append(" OR (ecm:name = ").append(name).append(" AND ecm:uuid > ").append(id).append("))");
+        }
+        final long max = Long.parseLong(limit);
+        // One more row tells whether there is a next page
+        query.append(" ORDER BY ecm:name, ecm:uuid LIMIT ").append(max + 1);
+        final String itemQuery = query.toString();
+        return new BoxCollectionQuery(getBoxJSONParser()) {
+            @Override
+            public void run(Handler handler) throws ClientException {
+                IterableQueryResult children = session.queryAndFetch(itemQuery, NXQL.NXQL);
+                try {
+                    Iterator<Map<String, Serializable>> it = children.iterator();
+                    Map<String, Serializable> row = null;
+                    long count = 0;
+                    while (it.hasNext() && count++ < max) {
+                        row = it.next();
+                        handler.addEntry(getBoxItemEntry(row, fields));
+                    }
+                    if (row != null && it.hasNext()) {
+                        handler.setField(BoxCollection.FIELD_NEXT_MARKER,
+                                encodeMarker((String) row.get(NXQL.ECM_UUID), (String) row.get(NXQL.ECM_NAME)));
+                    }
+                } finally {
+                    children.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * @return an opaque marker made of the given sort keys, the document id first
+     */
+    protected String encodeMarker(String id, String... keys) {
+        StringBuilder marker = new StringBuilder(id);
+        for (String key : keys) {
+            marker.append(MARKER_SEPARATOR).append(key);
+        }
+        byte[] bytes = marker.toString().getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * @return the document id followed by the other sort keys of the marker
+     */
+    protected String[] decodeMarker(String marker, int size) {
+        String[] keys;
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(marker);
+            keys = new String(bytes, StandardCharsets.UTF_8).split(MARKER_SEPARATOR, size);
+        } catch (IllegalArgumentException e) {
+            keys = new String[0];
+        }
+        if (keys.length != size) {
+            throw new BoxRestException("Invalid marker: " + marker, Response.Status.BAD_REQUEST.getStatusCode());
+        }
+        return keys;
+    }
+
+    /**
+     * Count the documents of a query in the repository with a count-only projection, no document being fetched. A
+     * count above the configured count up to is reported as -1.
+     *
+     * @param fromClause the FROM and WHERE clauses of the query
+     * @return the total number of documents, -1 if there are more than the count up to
+     */
+    protected int getTotalCount(CoreSession session, String fromClause) throws ClientException {
+        IterableQueryResult result = session.queryAndFetch("SELECT COUNT(ecm:uuid)" + fromClause, NXQL.NXQL);
+        long count = 0;
+        try {
+            Iterator<Map<String, Serializable>> it = result.iterator();
+            if (it.hasNext()) {
+                count = ((Number) it.next().values().iterator().next()).longValue();
+            }
+        } finally {
+            result.close();
+        }
+        long countUpTo = getCountUpTo();
+        return countUpTo >= 0 && count > countUpTo ? -1 : (int) count;
+    }
+
+    protected long getCountUpTo() {
+        return Long.parseLong(Framework.getProperty(BoxConstants.BOX_COUNT_UP_TO_PROPERTY,
+                BoxConstants.BOX_COUNT_UP_TO));
+    }
+
+    /**
+     * Build a mini box file or folder from a projection row over {@link #ITEM_COLUMNS}.
+     */
+    protected BoxTypedObject getBoxItemEntry(Map<String, Serializable> row, String fields) {
+        final Map<String, Object> documentProperties = new HashMap<>();
+        String id = (String) row.get(NXQL.ECM_UUID);
+        SchemaManager schemaManager = Framework.getLocalService(SchemaManager.class);
+        DocumentType documentType = schemaManager.getDocumentType((String) row.get(NXQL.ECM_PRIMARYTYPE));
+        documentProperties.put(BoxTypedObject.FIELD_ID, id);
+        documentProperties.put(BoxItem.FIELD_SEQUENCE_ID, id);
+        documentProperties.put(BoxItem.FIELD_ETAG, id + "_" + getVersionLabel(documentType, row));
+        documentProperties.put(BoxItem.FIELD_NAME, row.get(NXQL.ECM_NAME));
+        String sha1 = getBoxSha1(row);
+        if (sha1 != null) {
+            documentProperties.put(BoxFile.FIELD_SHA1, sha1);
+        }
+        boolean isFolder = documentType != null && documentType.getFacets().contains(FacetNames.FOLDERISH);
+        return filterBoxItemEntry(isFolder ? new BoxFolder() : new BoxFile(), documentProperties, fields);
+    }
+
+    /**
+     * Same SHA-1 as {@link #getBoxSha1(DocumentModel)}, computed from the projected digest columns.
+     */
+    protected String getBoxSha1(Map<String, Serializable> row) {
+        String digest = (String) row.get(DIGEST_COLUMN);
+        // The SHA-1 is stale if the content changed since it was uploaded, the columns being null without the facet
+        if (digest != null && digest.equals(row.get(BoxConstants.BOX_CONTENT_MD5))) {
+            return (String) row.get(BoxConstants.BOX_CONTENT_SHA1);
+        }
+        // NX MD5 -> Box SHA1
+        return digest;
+    }
+
+    /**
+     * Same label as {@link DocumentModel#getVersionLabel()}, computed from the projected uid columns.
+     */
+    protected String getVersionLabel(DocumentType documentType, Map<String, Serializable> row) {
+        if (documentType == null || !documentType.hasSchema("uid")) {
+            return "";
+        }
+        Number major = (Number) row.get("uid:major_version");
+        Number minor = (Number) row.get("uid:minor_version");
+        String label = (major != null ? major.longValue() : 0) + "." + (minor != null ? minor.longValue() : 0);
+        if (!Boolean.TRUE.equals(row.get(NXQL.ECM_ISCHECKEDIN)) && !"0.0".equals(label)) {
+            label += "+";
+        }
+        return label;
+    }
+
+    /**
+     * Depending of fields filter provided in the REST call: properties setup (* -> all)
+     */
+    protected BoxTypedObject filterBoxItemEntry(BoxTypedObject boxChild, Map<String, Object> documentProperties,
+            String fields) {
+        if (!BoxConstants.BOX_FIELDS.equals(fields) && fields != null) {
+            for (String field : fields.split(",")) {
+                boxChild.put(field, documentProperties.get(field));
+            }
+        } else {
+            boxChild.putAll(documentProperties);
+        }
+        return boxChild;
     }
 
     @Override
@@ -113,30 +461,166 @@ public class BoxServiceImpl implements BoxService {
             documentProperties.put(BoxItem.FIELD_SEQUENCE_ID, getBoxSequenceId(documentModel));
             documentProperties.put(BoxItem.FIELD_ETAG, getBoxEtag(documentModel));
             documentProperties.put(BoxItem.FIELD_NAME, getBoxName(documentModel));
-            // NX MD5 -> Box SHA1
-            if (documentModel.hasSchema("file")) {
-                Blob blob = (Blob) documentModel.getPropertyValue("file:content");
-                if (blob != null) {
-                    documentProperties.put(BoxFile.FIELD_SHA1, blob.getDigest());
-                }
+            String sha1 = getBoxSha1(documentModel);
+            if (sha1 != null) {
+                documentProperties.put(BoxFile.FIELD_SHA1, sha1);
             }
             // This different instantiation is related to the param type
             // which is automatically added in json payload by Box marshaller
             // following the box object type
             BoxTypedObject boxChild;
             boxChild = documentModel.isFolder() ? new BoxFolder() : new BoxFile();
-            // Depending of fields filter provided in the REST call:
-            // Properties setup (* -> all)
-            if (!"*".equals(fields) && fields != null) {
-                for (String field : fields.split(",")) {
-                    boxChild.put(field, documentProperties.get(field));
+            boxObject.add(filterBoxItemEntry(boxChild, documentProperties, fields));
+        }
+        return boxObject;
+    }
+
+    @Override
+    public List<BoxTypedObject> getBoxAncestors(CoreSession session, DocumentModel doc) throws ClientException {
+        BoxRequestCache requestCache = BoxRequestCache.get();
+        fetchBoxAncestors(session, Collections.singletonList(doc), requestCache);
+        List<BoxTypedObject> pathCollection = new ArrayList<>();
+        for (String ancestorId : requestCache.getAncestorIds().get(doc.getId())) {
+            BoxTypedObject ancestor = requestCache.getAncestors().get(ancestorId);
+            // Ancestors the user cannot read are not returned by the query
+            if (ancestor != null) {
+                pathCollection.add(ancestor);
+            }
+        }
+        return pathCollection;
+    }
+
+    @Override
+    public void fetchBoxAncestors(CoreSession session, List<DocumentModel> docs) throws ClientException {
+        fetchBoxAncestors(session, docs, BoxRequestCache.get());
+    }
+
+    /**
+     * Resolve the ancestor ids of the given documents, then fetch all the missing ancestors with a single projection
+     * query over {@link #ITEM_COLUMNS}. The root entry is built without being loaded.
+     */
+    protected void fetchBoxAncestors(CoreSession session, List<DocumentModel> docs, BoxRequestCache requestCache)
+            throws ClientException {
+        Map<String, List<String>> ancestorIdsCache = requestCache.getAncestorIds();
+        Map<String, BoxTypedObject> ancestors = requestCache.getAncestors();
+        Set<String> missingIds = new LinkedHashSet<>();
+        for (DocumentModel doc : docs) {
+            if (ancestorIdsCache.containsKey(doc.getId())) {
+                continue;
+            }
+            List<String> ancestorIds = new ArrayList<>();
+            DocumentRef parentRef = doc.getParentRef();
+            List<String> parentAncestorIds = parentRef != null ? ancestorIdsCache.get(parentRef.reference()) : null;
+            if (parentAncestorIds != null) {
+                // Sibling of a document already resolved
+                ancestorIds.add((String) parentRef.reference());
+                ancestorIds.addAll(parentAncestorIds);
+            } else if (parentRef != null) {
+                for (DocumentRef ancestorRef : session.getParentDocumentRefs(doc.getRef())) {
+                    ancestorIds.add((String) ancestorRef.reference());
+                }
+                // Each ancestor is followed by its own ancestors, the last one being the root
+                for (int i = 0; i < ancestorIds.size(); i++) {
+                    ancestorIdsCache.put(ancestorIds.get(i), ancestorIds.subList(i + 1, ancestorIds.size()));
+                }
+                if (!ancestorIds.isEmpty()) {
+                    ancestors.put(ancestorIds.get(ancestorIds.size() - 1), getBoxRootEntry());
+                }
+            }
+            ancestorIdsCache.put(doc.getId(), ancestorIds);
+            for (String ancestorId : ancestorIds) {
+                if (!ancestors.containsKey(ancestorId)) {
+                    missingIds.add(ancestorId);
                 }
-            } else {
-                boxChild.putAll(documentProperties);
             }
-            boxObject.add(boxChild);
         }
-        return boxObject;
+        if (missingIds.isEmpty()) {
+            return;
+        }
+        IterableQueryResult rows = session.queryAndFetch(getAncestorQuery(missingIds), NXQL.NXQL);
+        try {
+            for (Map<String, Serializable> row : rows) {
+                ancestors.put((String) row.get(NXQL.ECM_UUID), getBoxItemEntry(row, PATH_ENTRY_FIELDS));
+            }
+        } finally {
+            rows.close();
+        }
+    }
+
+    /**
+     * @return the path entry of the root, with the id and name given by the box documentation
+     */
+    protected BoxTypedObject getBoxRootEntry() {
+        final Map<String, Object> entryProperties = new HashMap<>();
+        entryProperties.put(BoxItem.FIELD_ID, "0");
+        entryProperties.put(BoxItem.FIELD_SEQUENCE_ID, null);
+        entryProperties.put(BoxItem.FIELD_ETAG, null);
+        entryProperties.put(BoxItem.FIELD_NAME, "/");
+        return new BoxFolder(Collections.unmodifiableMap(entryProperties));
+    }
+
+    /**
+     * @return the projection over {@link #ITEM_COLUMNS} of the given documents
+     */
+    protected String getAncestorQuery(Set<String> ids) {
+        StringBuilder query = new StringBuilder("SELECT ");
+        query.append(StringUtils.join(ITEM_COLUMNS, ", "));
+        query.append(" FROM Document WHERE ecm:uuid IN (");
+        Iterator<String> it = ids.iterator();
+        while (it.hasNext()) {
+            query.append(NXQL.escapeString(it.next()));
+            if (it.hasNext()) {
+                query.append(", ");
+            }
+        }
+        query.append(")");
+        return query.toString();
+    }
+
+    @Override
+    public void fetchBoxTags(CoreSession session, List<DocumentModel> docs) throws ClientException {
+        final Map<String, String[]> tags = BoxRequestCache.get().getTags();
+        final Set<String> missingIds = new LinkedHashSet<>();
+        for (DocumentModel doc : docs) {
+            if (!tags.containsKey(doc.getId())) {
+                missingIds.add(doc.getId());
+            }
+        }
+        if (missingIds.isEmpty()) {
+            return;
+        }
+        StringBuilder query = new StringBuilder("SELECT tag:label, relation:source FROM Tagging");
+        query.append(" WHERE relation:source IN (");
+        Iterator<String> it = missingIds.iterator();
+        while (it.hasNext()) {
+            query.append(NXQL.escapeString(it.next()));
+            if (it.hasNext()) {
+                query.append(", ");
+            }
+        }
+        query.append(") AND dc:creator = ").append(NXQL.escapeString(session.getPrincipal().getName()));
+        final String tagQuery = query.toString();
+        final Map<String, Set<String>> labels = new HashMap<>();
+        for (String docId : missingIds) {
+            labels.put(docId, new LinkedHashSet<String>());
+        }
+        // Taggings are not readable by everyone, as in the tag service
+        new UnrestrictedSessionRunner(session) {
+            @Override
+            public void run() throws ClientException {
+                IterableQueryResult result = session.queryAndFetch(tagQuery, TAG_QUERY_TYPE);
+                try {
+                    for (Map<String, Serializable> row : result) {
+                        labels.get(row.get("relation:source")).add((String) row.get("tag:label"));
+                    }
+                } finally {
+                    result.close();
+                }
+            }
+        }.runUnrestricted();
+        for (Map.Entry<String, Set<String>> entry : labels.entrySet()) {
+            tags.put(entry.getKey(), entry.getValue().toArray(new String[entry.getValue().size()]));
+        }
     }
 
     /**
@@ -150,15 +634,15 @@ public class BoxServiceImpl implements BoxService {
         Map<String, Object> boxCollabProperties = new HashMap<>();
         // Nuxeo acl doesn't provide id yet
         boxCollabProperties.put(BoxCollaboration.FIELD_ID,
-                computeCollaborationId(boxFolderAdapter.getBoxItem().getId(), collaborationId));
+                computeCollaborationId(boxFolderAdapter.getMiniItem().getId(), collaborationId));
         // Nuxeo acl doesn't provide created date yet
         boxCollabProperties.put(BoxCollaboration.FIELD_CREATED_AT, null);
         // Nuxeo acl doesn't provide modified date yet
         boxCollabProperties.put(BoxCollaboration.FIELD_MODIFIED_AT, null);
 
         // Creator
-        final UserManager userManager = Framework.getLocalService(UserManager.class);
-        boxCollabProperties.put(BoxCollaboration.FIELD_CREATED_BY, boxFolderAdapter.getBoxItem().getCreatedBy());
+        boxCollabProperties.put(BoxCollaboration.FIELD_CREATED_BY,
+                boxFolderAdapter.getBoxItem(BoxItem.FIELD_CREATED_BY).getCreatedBy());
 
         // Nuxeo doesn't provide expiration date yet
         boxCollabProperties.put(BoxCollaboration.FIELD_EXPIRES_AT, null);
@@ -172,21 +656,57 @@ public class BoxServiceImpl implements BoxService {
         boxCollabProperties.put(BoxCollaboration.FIELD_FOLDER, boxFolderAdapter.getMiniItem());
 
         // User or Group whom can access to the document
-        NuxeoPrincipal user = userManager.getPrincipal(ace.getUsername());
-        NuxeoGroup group = userManager.getGroup(ace.getUsername());
-        boxCollabProperties.put(BoxCollaboration.FIELD_ACCESSIBLE_BY, user != null ? fillUser(user) : fillGroup(group));
+        boxCollabProperties.put(BoxCollaboration.FIELD_ACCESSIBLE_BY, getBoxCollaborator(ace.getUsername()));
 
         // Box Role
         boxCollabProperties.put(BoxCollaboration.FIELD_ROLE, nxBoxRole.get(ace.getPermission()));
         return new BoxCollaboration(boxCollabProperties);
     }
 
+    @Override
+    public void activate(ComponentContext context) {
+        BoxResourceHub hub = new BoxResourceHub();
+        boxJSONParser = new BoxJSONParser(hub);
+        boxParsers.put(BoxDataFormat.JSON, boxJSONParser);
+        boxParsers.put(BoxDataFormat.SMILE, new BoxJSONParser(hub, true, BoxDataFormat.SMILE));
+        boxParsers.put(BoxDataFormat.CBOR, new BoxJSONParser(hub, true, BoxDataFormat.CBOR));
+        errorEncoder = new BoxErrorEncoder();
+        uploadSessions = new BoxUploadSessions();
+    }
+
+    /**
+     * @return the parser of the format accepted by the client of the current request, JSON by default
+     */
+    protected BoxJSONParser getBoxJSONParser() {
+        WebContext ctx = WebEngine.getActiveContext();
+        if (ctx == null) {
+            return boxJSONParser;
+        }
+        return boxParsers.get(BoxDataFormat.fromAccept(ctx.getRequest().getHeader(HttpHeaders.ACCEPT)));
+    }
+
+    @Override
+    public Object getBoxEntity(final BoxObject boxObject) throws BoxJSONException {
+        final BoxJSONParser parser = getBoxJSONParser();
+        if (parser.getFormat() == BoxDataFormat.JSON) {
+            return toJSONString(boxObject);
+        }
+        // Binary encodings are written straight to the response
+        return new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                JsonGenerator jg = parser.createJsonGenerator(output);
+                parser.writeBoxObject(jg, boxObject);
+                jg.flush();
+            }
+        };
+    }
+
     /**
      * Marshalling the box object to JSON
      */
     @Override
     public String toJSONString(BoxObject boxObject) throws BoxJSONException {
-        BoxJSONParser boxJSONParser = new BoxJSONParser(new BoxResourceHub());
         try {
             return boxObject.toJSONString(boxJSONParser);
         } catch (BoxJSONException e) {
@@ -223,6 +743,41 @@ public class BoxServiceImpl implements BoxService {
         return null;
     }
 
+    @Override
+    public String getBoxSha1(DocumentModel doc) {
+        if (doc == null || !doc.hasSchema("file")) {
+            return null;
+        }
+        Blob blob = (Blob) doc.getPropertyValue("file:content");
+        if (blob == null) {
+            return null;
+        }
+        // The SHA-1 is stale if the content changed since it was uploaded
+        if (doc.hasFacet(BoxConstants.BOX_CONTENT_FACET) && blob.getDigest() != null
+                && blob.getDigest().equals(doc.getPropertyValue(BoxConstants.BOX_CONTENT_MD5))) {
+            return (String) doc.getPropertyValue(BoxConstants.BOX_CONTENT_SHA1);
+        }
+        // NX MD5 -> Box SHA1
+        return blob.getDigest();
+    }
+
+    @Override
+    public DocumentModel getBoxContentDocument(CoreSession session, String digest) throws ClientException {
+        if (digest == null) {
+            return null;
+        }
+        // A SHA-1 is only known for the contents digested on upload
+        boolean sha1 = digest.length() == SHA1_HEX_LENGTH;
+        String query = "SELECT * FROM Document WHERE " + (sha1 ? BoxConstants.BOX_CONTENT_SHA1 : DIGEST_COLUMN)
+                + " = " + NXQL.escapeString(digest);
+        for (DocumentModel doc : session.query(query, null, CONTENT_QUERY_LIMIT, 0, false)) {
+            if (digest.equals(sha1 ? getBoxSha1(doc) : ((Blob) doc.getPropertyValue("file:content")).getDigest())) {
+                return doc;
+            }
+        }
+        return null;
+    }
+
     @Override
     public String getBoxName(DocumentModel doc) {
         if (doc != null) {
@@ -232,7 +787,7 @@ public class BoxServiceImpl implements BoxService {
     }
 
     /**
-     * Return a box user from a Nuxeo user metamodel
+     * Return a read-only box user from a Nuxeo user metamodel
      */
     @Override
     public BoxUser fillUser(NuxeoPrincipal creator) {
@@ -241,11 +796,13 @@ public class BoxServiceImpl implements BoxService {
         mapUser.put(BoxItem.FIELD_NAME, creator != null ? creator.getFirstName() + " " + creator.getLastName()
                 : "system");
         mapUser.put(BoxUser.FIELD_LOGIN, creator != null ? creator.getName() : "system");
-        return new BoxUser(Collections.unmodifiableMap(mapUser));
+        BoxUser user = new BoxUser(Collections.unmodifiableMap(mapUser));
+        user.setReadOnly();
+        return user;
     }
 
     /**
-     * Return a box group from a Nuxeo user metamodel
+     * Return a read-only box group from a Nuxeo user metamodel
      */
     @Override
     public BoxGroup fillGroup(NuxeoGroup group) {
@@ -253,32 +810,174 @@ public class BoxServiceImpl implements BoxService {
         mapGroup.put(BoxItem.FIELD_ID, group != null ? group.getName() : "system");
         mapGroup.put(BoxItem.FIELD_NAME, group != null ? group.getLabel() : "system");
         mapGroup.put(BoxUser.FIELD_LOGIN, group != null ? group.getName() : "system");
-        return new BoxGroup(Collections.unmodifiableMap(mapGroup));
+        BoxGroup boxGroup = new BoxGroup(Collections.unmodifiableMap(mapGroup));
+        boxGroup.setReadOnly();
+        return boxGroup;
+    }
+
+    @Override
+    public BoxUser getBoxUser(final String username) {
+        if (username == null) {
+            return fillUser(null);
+        }
+        return getBoxPrincipal(userCache, BoxRequestCache.get().getUsers(), username, new Callable<BoxUser>() {
+            @Override
+            public BoxUser call() {
+                UserManager userManager = Framework.getLocalService(UserManager.class);
+                return fillUser(userManager.getPrincipal(username));
+            }
+        });
+    }
+
+    @Override
+    public BoxGroup getBoxGroup(final String groupname) {
+        if (groupname == null) {
+            return fillGroup(null);
+        }
+        return getBoxPrincipal(groupCache, BoxRequestCache.get().getGroups(), groupname, new Callable<BoxGroup>() {
+            @Override
+            public BoxGroup call() {
+                UserManager userManager = Framework.getLocalService(UserManager.class);
+                return fillGroup(userManager.getGroup(groupname));
+            }
+        });
+    }
+
+    @Override
+    public BoxUser getBoxCollaborator(final String name) {
+        if (name == null) {
+            return fillGroup(null);
+        }
+        return getBoxPrincipal(collaboratorCache, BoxRequestCache.get().getCollaborators(), name,
+                new Callable<BoxUser>() {
+                    @Override
+                    public BoxUser call() {
+                        UserManager userManager = Framework.getLocalService(UserManager.class);
+                        NuxeoPrincipal user = userManager.getPrincipal(name);
+                        return user != null ? fillUser(user) : fillGroup(userManager.getGroup(name));
+                    }
+                });
+    }
+
+    /**
+     * Resolve a principal from the request memo, then from the shared cache and finally from the user manager.
+     */
+    protected <T extends BoxUser> T getBoxPrincipal(Cache<String, T> cache, Map<String, T> principals, String name,
+            Callable<T> loader) {
+        T principal = principals.get(name);
+        if (principal == null) {
+            try {
+                principal = cache.get(name, loader);
+            } catch (ExecutionException | UncheckedExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+            principals.put(name, principal);
+        }
+        return principal;
+    }
+
+    @Override
+    public void invalidateBoxPrincipals(String name) {
+        if (name == null) {
+            userCache.invalidateAll();
+            groupCache.invalidateAll();
+            collaboratorCache.invalidateAll();
+        } else {
+            userCache.invalidate(name);
+            groupCache.invalidate(name);
+            collaboratorCache.invalidate(name);
+        }
     }
 
     @Override
     public BoxFolder getBoxFolder(String jsonBoxFolder) throws BoxJSONException {
-        return new BoxJSONParser(new BoxResourceHub()).parseIntoBoxObject(jsonBoxFolder, BoxFolder.class);
+        return boxJSONParser.parseIntoBoxObject(jsonBoxFolder, BoxFolder.class);
     }
 
     @Override
     public BoxFile getBoxFile(String jsonBoxFile) throws BoxJSONException {
-        return new BoxJSONParser(new BoxResourceHub()).parseIntoBoxObject(jsonBoxFile, BoxFile.class);
+        return boxJSONParser.parseIntoBoxObject(jsonBoxFile, BoxFile.class);
     }
 
     @Override
     public BoxComment getBoxComment(String jsonBoxComment) throws BoxJSONException {
-        return new BoxJSONParser(new BoxResourceHub()).parseIntoBoxObject(jsonBoxComment, BoxComment.class);
+        return boxJSONParser.parseIntoBoxObject(jsonBoxComment, BoxComment.class);
     }
 
     @Override
     public BoxCollaboration getBoxCollaboration(String jsonBoxCollaboration) throws BoxJSONException {
-        return new BoxJSONParser(new BoxResourceHub()).parseIntoBoxObject(jsonBoxCollaboration, BoxCollaboration.class);
+        return boxJSONParser.parseIntoBoxObject(jsonBoxCollaboration, BoxCollaboration.class);
+    }
+
+    @Override
+    public BoxFolder getBoxFolder(InputStream jsonBoxFolder) throws BoxJSONException {
+        return parseBoxBody(jsonBoxFolder, BoxFolder.class);
+    }
+
+    @Override
+    public BoxFile getBoxFile(InputStream jsonBoxFile) throws BoxJSONException {
+        return parseBoxBody(jsonBoxFile, BoxFile.class);
+    }
+
+    @Override
+    public BoxComment getBoxComment(InputStream jsonBoxComment) throws BoxJSONException {
+        return parseBoxBody(jsonBoxComment, BoxComment.class);
+    }
+
+    @Override
+    public BoxCollaboration getBoxCollaboration(InputStream jsonBoxCollaboration) throws BoxJSONException {
+        return parseBoxBody(jsonBoxCollaboration, BoxCollaboration.class);
+    }
+
+    @Override
+    public BoxUploadSession getBoxUploadSession(InputStream jsonBoxUploadSession) throws BoxJSONException {
+        return parseBoxBody(jsonBoxUploadSession, BoxUploadSession.class);
+    }
+
+    @Override
+    public BoxUploadSessions getUploadSessions() {
+        return uploadSessions;
+    }
+
+    /**
+     * Parse a request body as it is read, in the format of its Content-Type, failing with a 413 status as soon as it
+     * is known to be too large.
+     */
+    protected <T> T parseBoxBody(InputStream body, Class<T> type) throws BoxJSONException {
+        long maxSize = getMaxBodySize();
+        WebContext ctx = WebEngine.getActiveContext();
+        BoxJSONParser parser = boxJSONParser;
+        if (ctx != null) {
+            if (ctx.getRequest().getContentLength() > maxSize) {
+                throw newBodyTooLargeException(maxSize);
+            }
+            parser = boxParsers.get(BoxDataFormat.fromContentType(ctx.getRequest().getContentType()));
+        }
+        try {
+            return parser.parseIntoBoxObject(new BoxLimitedInputStream(body, maxSize), type);
+        } catch (BoxJSONException e) {
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof BoxLimitedInputStream.LimitExceededException) {
+                    throw newBodyTooLargeException(maxSize);
+                }
+            }
+            throw e;
+        }
+    }
+
+    protected BoxRestException newBodyTooLargeException(long maxSize) {
+        return new BoxRestException("Request body larger than " + maxSize + " bytes",
+                BoxConstants.STATUS_REQUEST_ENTITY_TOO_LARGE);
+    }
+
+    protected long getMaxBodySize() {
+        return Long.parseLong(Framework.getProperty(BoxConstants.BOX_MAX_BODY_SIZE_PROPERTY,
+                BoxConstants.BOX_MAX_BODY_SIZE));
     }
 
     @Override
     public String getJSONFromBox(BoxTypedObject boxTypedObject) throws BoxJSONException {
-        return boxTypedObject.toJSONString(new BoxJSONParser(new BoxResourceHub()));
+        return boxTypedObject.toJSONString(boxJSONParser);
     }
 
     /**
@@ -286,21 +985,13 @@ public class BoxServiceImpl implements BoxService {
      */
     @Override
     public String getJSONBoxException(Exception e, int status) {
-        NXBoxJsonException boxException = new NXBoxJsonException();
-        // Message
-        boxException.setCode(e.getMessage());
-        // Detailed Message
-        boxException.setMessage(e.getCause() != null ? e.getCause().getMessage() : null);
-        boxException.setStatus(status);
-        ObjectMapper mapper = new ObjectMapper();
-        String jsonExceptionResponse = StringUtils.EMPTY;
-        try {
-            jsonExceptionResponse = mapper.writeValueAsString(boxException);
-        } catch (JsonProcessingException e1) {
-            throw new BoxRestException("error when marshalling server " + "exception:", e1,
-                    Response.Status.INTERNAL_SERVER_ERROR.getStatusCode());
-        }
-        return jsonExceptionResponse;
+        // Code: message, detailed message: message of the cause
+        return errorEncoder.encode(status, e.getMessage(), e.getCause() != null ? e.getCause().getMessage() : null);
+    }
+
+    @Override
+    public long getBoxErrorCount(int status) {
+        return errorEncoder.getCount(status);
     }
 
     /**
@@ -0,0 +1,422 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.service;
+
+import org.nuxeo.box.api.BoxConstants;
+import org.nuxeo.box.api.marshalling.dao.BoxUploadPart;
+import org.nuxeo.box.api.marshalling.dao.BoxUploadSession;
+import org.nuxeo.box.api.marshalling.exceptions.BoxRestException;
+import org.nuxeo.box.api.utils.BoxLimitedInputStream;
+import org.nuxeo.box.api.utils.ISO8601DateCodec;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.transientstore.AbstractStorageEntry;
+import org.nuxeo.ecm.core.transientstore.api.StorageEntry;
+import org.nuxeo.ecm.core.transientstore.api.TransientStore;
+import org.nuxeo.ecm.core.transientstore.api.TransientStoreService;
+import org.nuxeo.runtime.api.Framework;
+
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Upload sessions of large files, whose parts are uploaded separately, possibly in parallel or again after a failure,
+ * before being committed as a new file.
+ * <p>
+ * The sessions and their parts are kept in the {@link BoxConstants#BOX_UPLOAD_STORE} transient store, so that the
+ * parts of a session can be uploaded to any node of a cluster. Each part is an entry of its own, so that parts
+ * uploaded in parallel do not update the same entry, and is concatenated with the other ones on commit. A session
+ * belongs to the user who created it, and is deleted with its parts when committed, aborted or expired.
+ *
+ * @since 7.3
+ */
+public class BoxUploadSessions {
+
+    protected static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+    protected static final String SHA_DIGEST = "sha=";
+
+    protected static final String PART_KEY = ":part:";
+
+    protected static final String USER_KEY = "user:";
+
+    protected static final String USER = "user";
+
+    protected static final String FOLDER_ID = "folderId";
+
+    protected static final String FILE_NAME = "fileName";
+
+    protected static final String FILE_SIZE = "fileSize";
+
+    protected static final String PART_SIZE = "partSize";
+
+    protected static final String EXPIRES_AT = "expiresAt";
+
+    protected static final String OFFSET = "offset";
+
+    protected static final String SIZE = "size";
+
+    protected static final String SHA1 = "sha1";
+
+    protected static final String SESSION_IDS = "sessionIds";
+
+    /**
+     * Entry of a session, of one of its parts or of the session ids of a user
+     */
+    protected static class Entry extends AbstractStorageEntry {
+
+        private static final long serialVersionUID = 1L;
+
+        protected Entry(String id) {
+            super(id);
+        }
+
+        @Override
+        public void beforeRemove() {
+            // Blobs are deleted by the store
+        }
+    }
+
+    /**
+     * Upload session state, read from its entry
+     */
+    protected static class Session {
+
+        protected final String id;
+
+        protected final String user;
+
+        protected final String folderId;
+
+        protected final String fileName;
+
+        protected final long fileSize;
+
+        protected final long partSize;
+
+        protected final long expiresAt;
+
+        protected Session(StorageEntry entry) {
+            id = entry.getId();
+            user = (String) entry.get(USER);
+            folderId = (String) entry.get(FOLDER_ID);
+            fileName = (String) entry.get(FILE_NAME);
+            fileSize = (Long) entry.get(FILE_SIZE);
+            partSize = (Long) entry.get(PART_SIZE);
+            expiresAt = (Long) entry.get(EXPIRES_AT);
+        }
+
+        protected int getTotalParts() {
+            return (int) ((fileSize + partSize - 1) / partSize);
+        }
+
+        protected String getPartKey(long offset) {
+            return id + PART_KEY + offset / partSize;
+        }
+    }
+
+    /**
+     * @return the new upload session
+     */
+    public BoxUploadSession create(String user, String folderId, String fileName, long fileSize) throws IOException {
+        long maxSize = Long.parseLong(Framework.getProperty(BoxConstants.BOX_UPLOAD_MAX_SIZE_PROPERTY,
+                BoxConstants.BOX_UPLOAD_MAX_SIZE));
+        if (fileSize > maxSize) {
+            throw new BoxRestException("File larger than " + maxSize + " bytes",
+                    BoxConstants.STATUS_REQUEST_ENTITY_TOO_LARGE);
+        }
+        long partSize = Long.parseLong(Framework.getProperty(BoxConstants.BOX_UPLOAD_PART_SIZE_PROPERTY,
+                BoxConstants.BOX_UPLOAD_PART_SIZE));
+        long ttl = Long.parseLong(Framework.getProperty(BoxConstants.BOX_UPLOAD_SESSION_TTL_PROPERTY,
+                BoxConstants.BOX_UPLOAD_SESSION_TTL));
+        TransientStore store = getStore();
+        ArrayList<String> sessionIds = getSessionIds(store, user);
+        int maxSessions = Integer.parseInt(Framework.getProperty(BoxConstants.BOX_UPLOAD_MAX_SESSIONS_PROPERTY,
+                BoxConstants.BOX_UPLOAD_MAX_SESSIONS));
+        if (sessionIds.size() >= maxSessions) {
+            throw new BoxRestException("More than " + maxSessions + " upload sessions for " + user,
+                    Response.Status.FORBIDDEN.getStatusCode());
+        }
+        StorageEntry entry = new Entry(UUID.randomUUID().toString());
+        entry.put(USER, user);
+        entry.put(FOLDER_ID, folderId);
+        entry.put(FILE_NAME, fileName);
+        entry.put(FILE_SIZE, fileSize);
+        entry.put(PART_SIZE, partSize);
+        entry.put(EXPIRES_AT, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl));
+        store.put(entry);
+        sessionIds.add(entry.getId());
+        putSessionIds(store, user, sessionIds);
+        return toBoxUploadSession(store, new Session(entry));
+    }
+
+    public BoxUploadSession getSession(String user, String sessionId) throws IOException {
+        TransientStore store = getStore();
+        return toBoxUploadSession(store, getState(store, user, sessionId));
+    }
+
+    /**
+     * Writes a part of the file from the request stream.
+     *
+     * @param contentRange the Content-Range header of the part, {@code bytes first-last/fileSize}
+     * @param digest the Digest header of the part, {@code sha=<base64 SHA-1>}, or null
+     * @return the uploaded part
+     */
+    public BoxUploadPart uploadPart(String user, String sessionId, String contentRange, String digest,
+            InputStream input) throws IOException {
+        TransientStore store = getStore();
+        Session session = getState(store, user, sessionId);
+        Matcher matcher = contentRange != null ? CONTENT_RANGE.matcher(contentRange.trim()) : null;
+        if (matcher == null || !matcher.matches()) {
+            throw new BoxRestException("Invalid Content-Range: " + contentRange,
+                    Response.Status.BAD_REQUEST.getStatusCode());
+        }
+        long first = Long.parseLong(matcher.group(1));
+        long last = Long.parseLong(matcher.group(2));
+        long count = last - first + 1;
+        if (Long.parseLong(matcher.group(3)) != session.fileSize || last < first || last >= session.fileSize
+                || first % session.partSize != 0 || count > session.partSize || count != session.partSize
+                && last != session.fileSize - 1) {
+            throw new BoxRestException("Content-Range " + contentRange + " is not a part of " + session.partSize
+                    + " bytes of a file of " + session.fileSize + " bytes",
+                    BoxConstants.STATUS_REQUESTED_RANGE_NOT_SATISFIABLE);
+        }
+        // A part uploaded again is not valid until fully written
+        String partKey = session.getPartKey(first);
+        store.remove(partKey);
+        MessageDigest sha1 = newSha1();
+        Blob blob;
+        try {
+            blob = Blobs.createBlob(new DigestInputStream(new BoxLimitedInputStream(input, count), sha1));
+        } catch (BoxLimitedInputStream.LimitExceededException e) {
+            blob = null;
+        }
+        if (blob == null || blob.getLength() != count) {
+            throw new BoxRestException("Part at " + first + " is not " + count + " bytes long",
+                    Response.Status.BAD_REQUEST.getStatusCode());
+        }
+        byte[] partDigest = sha1.digest();
+        checkDigest(digest, partDigest);
+        StorageEntry entry = new Entry(partKey);
+        entry.put(OFFSET, first);
+        entry.put(SIZE, count);
+        entry.put(SHA1, String.format("%040x", new BigInteger(1, partDigest)));
+        entry.addBlob(blob);
+        store.put(entry);
+        return toBoxUploadPart(session, entry);
+    }
+
+    /**
+     * Checks that the parts of the session make up the whole file.
+     *
+     * @param parts the parts the client uploaded, or null to skip checking them
+     * @param digest the Digest header of the file, {@code sha=<base64 SHA-1>}, or null
+     * @return the blob of the file, concatenating the blobs of the parts
+     */
+    public Blob commit(String user, String sessionId, List<BoxUploadPart> parts, String digest) throws IOException {
+        TransientStore store = getStore();
+        Session session = getState(store, user, sessionId);
+        final List<Blob> blobs = new ArrayList<>();
+        List<BoxUploadPart> uploadedParts = new ArrayList<>();
+        for (long offset = 0; offset < session.fileSize; offset += session.partSize) {
+            StorageEntry entry = store.get(session.getPartKey(offset));
+            if (entry == null || entry.getBlobs() == null || entry.getBlobs().isEmpty()) {
+                throw new BoxRestException("Missing part at " + offset + " of upload session " + sessionId,
+                        Response.Status.BAD_REQUEST.getStatusCode());
+            }
+            blobs.add(entry.getBlobs().get(0));
+            uploadedParts.add(toBoxUploadPart(session, entry));
+        }
+        if (parts != null && !uploadedParts.equals(parts)) {
+            throw new BoxRestException("Parts differ from the uploaded parts of upload session " + sessionId,
+                    Response.Status.BAD_REQUEST.getStatusCode());
+        }
+        // The parts are read one after the other, each stream being opened once the previous one is consumed
+        MessageDigest sha1 = newSha1();
+        InputStream input = new SequenceInputStream(new Enumeration<InputStream>() {
+
+            protected int index;
+
+            @Override
+            public boolean hasMoreElements() {
+                return index < blobs.size();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                try {
+                    return blobs.get(index++).getStream();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+        Blob blob;
+        try (InputStream digestInput = new DigestInputStream(input, sha1)) {
+            blob = Blobs.createBlob(digestInput);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        checkDigest(digest, sha1.digest());
+        blob.setFilename(session.fileName);
+        return blob;
+    }
+
+    /**
+     * Removes the session, deleting its parts.
+     */
+    public void remove(String user, String sessionId) throws IOException {
+        TransientStore store = getStore();
+        remove(store, getState(store, user, sessionId));
+    }
+
+    protected void remove(TransientStore store, Session session) throws IOException {
+        for (long offset = 0; offset < session.fileSize; offset += session.partSize) {
+            store.remove(session.getPartKey(offset));
+        }
+        store.remove(session.id);
+        ArrayList<String> sessionIds = getSessionIds(store, session.user);
+        sessionIds.remove(session.id);
+        putSessionIds(store, session.user, sessionIds);
+    }
+
+    /**
+     * @return the session, failing with a 404 status if it is not one of the user or if it expired
+     */
+    protected Session getState(TransientStore store, String user, String sessionId) throws IOException {
+        StorageEntry entry = store.get(sessionId);
+        Session session = entry != null && entry.get(USER) != null ? new Session(entry) : null;
+        if (session != null && session.expiresAt < System.currentTimeMillis()) {
+            // The store also evicts the expired entries which are not accessed anymore
+            remove(store, session);
+            session = null;
+        }
+        if (session == null || !session.user.equals(user)) {
+            throw new BoxRestException("No such upload session: " + sessionId,
+                    Response.Status.NOT_FOUND.getStatusCode());
+        }
+        return session;
+    }
+
+    /**
+     * @return the ids of the sessions of the user still in the store
+     */
+    @SuppressWarnings("unchecked")
+    protected ArrayList<String> getSessionIds(TransientStore store, String user) throws IOException {
+        ArrayList<String> sessionIds = new ArrayList<>();
+        StorageEntry entry = store.get(USER_KEY + user);
+        if (entry != null && entry.get(SESSION_IDS) != null) {
+            for (String sessionId : (List<String>) entry.get(SESSION_IDS)) {
+                StorageEntry sessionEntry = store.get(sessionId);
+                if (sessionEntry != null && (Long) sessionEntry.get(EXPIRES_AT) >= System.currentTimeMillis()) {
+                    sessionIds.add(sessionId);
+                }
+            }
+        }
+        return sessionIds;
+    }
+
+    protected void putSessionIds(TransientStore store, String user, ArrayList<String> sessionIds)
+            throws IOException {
+        StorageEntry entry = new Entry(USER_KEY + user);
+        entry.put(SESSION_IDS, sessionIds);
+        store.put(entry);
+    }
+
+    protected TransientStore getStore() {
+        return Framework.getService(TransientStoreService.class).getStore(BoxConstants.BOX_UPLOAD_STORE);
+    }
+
+    protected BoxUploadSession toBoxUploadSession(TransientStore store, Session session) throws IOException {
+        List<BoxUploadPart> parts = new ArrayList<>();
+        for (long offset = 0; offset < session.fileSize; offset += session.partSize) {
+            StorageEntry entry = store.get(session.getPartKey(offset));
+            if (entry != null) {
+                parts.add(toBoxUploadPart(session, entry));
+            }
+        }
+        BoxUploadSession boxSession = new BoxUploadSession();
+        boxSession.setId(session.id);
+        boxSession.setSessionExpiresAt(ISO8601DateCodec.format(new Date(session.expiresAt)));
+        boxSession.setPartSize(session.partSize);
+        boxSession.setTotalParts(session.getTotalParts());
+        boxSession.setNumPartsProcessed(parts.size());
+        boxSession.setFolderId(session.folderId);
+        boxSession.setFileName(session.fileName);
+        boxSession.setFileSize(session.fileSize);
+        boxSession.setParts(parts);
+        return boxSession;
+    }
+
+    protected static BoxUploadPart toBoxUploadPart(Session session, StorageEntry entry) {
+        long offset = (Long) entry.get(OFFSET);
+        BoxUploadPart part = new BoxUploadPart();
+        part.setPartId(String.format("%08X", offset / session.partSize));
+        part.setOffset(offset);
+        part.setSize((Long) entry.get(SIZE));
+        part.setSha1((String) entry.get(SHA1));
+        return part;
+    }
+
+    /**
+     * Fails with a 412 status if the SHA-1 digest of a Digest header differs from the actual one.
+     */
+    protected static void checkDigest(String digest, byte[] actual) {
+        if (digest == null) {
+            return;
+        }
+        for (String value : digest.split(",")) {
+            value = value.trim();
+            if (value.regionMatches(true, 0, SHA_DIGEST, 0, SHA_DIGEST.length())) {
+                byte[] expected;
+                try {
+                    expected = Base64.getDecoder().decode(value.substring(SHA_DIGEST.length()));
+                } catch (IllegalArgumentException e) {
+                    expected = null;
+                }
+                if (expected == null || !MessageDigest.isEqual(expected, actual)) {
+                    throw new BoxRestException("Digest mismatch: " + value,
+                            Response.Status.PRECONDITION_FAILED.getStatusCode());
+                }
+            }
+        }
+    }
+
+    protected static MessageDigest newSha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
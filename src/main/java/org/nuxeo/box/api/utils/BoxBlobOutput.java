@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.utils;
+
+import org.nuxeo.ecm.core.api.Blob;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Streaming output of a range of the bytes of a blob, skipped to and copied from the blob stream through a small
+ * buffer.
+ *
+ * @since 7.3
+ */
+public class BoxBlobOutput implements StreamingOutput {
+
+    protected static final int BUFFER_SIZE = 8192;
+
+    protected final Blob blob;
+
+    protected final long first;
+
+    protected final long count;
+
+    /**
+     * @param count the number of bytes to write, -1 for all the bytes after the first one
+     */
+    public BoxBlobOutput(Blob blob, long first, long count) {
+        this.blob = blob;
+        this.first = first;
+        this.count = count;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        copy(output);
+        output.flush();
+    }
+
+    protected void copy(OutputStream output) throws IOException {
+        try (InputStream input = blob.getStream()) {
+            for (long skipped = 0; skipped < first;) {
+                long n = input.skip(first - skipped);
+                if (n <= 0) {
+                    if (input.read() < 0) {
+                        throw new EOFException("Blob truncated at " + skipped + " bytes");
+                    }
+                    n = 1;
+                }
+                skipped += n;
+            }
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = count < 0 ? Long.MAX_VALUE : count;
+            while (remaining > 0) {
+                int n = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (n < 0) {
+                    if (count < 0) {
+                        return;
+                    }
+                    throw new EOFException("Blob truncated at " + (first + count - remaining) + " bytes");
+                }
+                output.write(buffer, 0, n);
+                remaining -= n;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.utils;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Single byte range of a Range request header, {@code bytes=first-last}, {@code bytes=first-} or
+ * {@code bytes=-suffixLength}, bounded by the length of the content.
+ * <p>
+ * Requests for several ranges are served the whole content, as allowed for servers not supporting them.
+ *
+ * @since 7.3
+ */
+public class BoxByteRange {
+
+    public static final String BYTES = "bytes";
+
+    protected static final String BYTES_PREFIX = BYTES + "=";
+
+    protected final long first;
+
+    protected final long last;
+
+    protected final long length;
+
+    protected BoxByteRange(long first, long last, long length) {
+        this.first = first;
+        this.last = Math.min(last, length - 1);
+        this.length = length;
+    }
+
+    /**
+     * @param range the Range header of the request
+     * @param length the length of the content
+     * @return the range to send, null to send the whole content
+     */
+    public static BoxByteRange parse(String range, long length) {
+        if (range == null || !StringUtils.startsWithIgnoreCase(range.trim(), BYTES_PREFIX)) {
+            return null;
+        }
+        String spec = range.trim().substring(BYTES_PREFIX.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffixLength = Long.parseLong(last);
+                return suffixLength < 0 ? null : new BoxByteRange(Math.max(0, length - suffixLength), length - 1,
+                        length);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Long.parseLong(last);
+            return start < 0 || end < start ? null : new BoxByteRange(start, end, length);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return false if the range starts past the end of the content, or is an empty suffix
+     */
+    public boolean isSatisfiable() {
+        return first <= last;
+    }
+
+    public long getFirst() {
+        return first;
+    }
+
+    public long getLast() {
+        return last;
+    }
+
+    /**
+     * @return the number of bytes of the range
+     */
+    public long getCount() {
+        return last - first + 1;
+    }
+
+    /**
+     * @return the Content-Range header of the partial response
+     */
+    public String getContentRange() {
+        return BYTES + " " + first + "-" + last + "/" + length;
+    }
+
+    /**
+     * @return the Content-Range header of the unsatisfiable range response
+     */
+    public static String getUnsatisfiedContentRange(long length) {
+        return BYTES + " */" + length;
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.utils;
+
+import org.apache.commons.lang.StringUtils;
+import org.nuxeo.box.api.BoxConstants;
+import org.nuxeo.ecm.webengine.model.WebContext;
+import org.nuxeo.runtime.api.Framework;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of the box responses negotiated with the Accept-Encoding header of the request. Responses smaller than
+ * the compression threshold are sent as is; streamed responses are buffered up to the threshold before deciding.
+ *
+ * @since 7.3
+ */
+public class BoxCompression {
+
+    public static final String GZIP = "gzip";
+
+    public static final String DEFLATE = "deflate";
+
+    public static final String VARY = "Vary";
+
+    private BoxCompression() {
+    }
+
+    /**
+     * @param endpoint the name of the endpoint, for its compression level
+     * @param entity the JSON string or streaming output of the response, or a response with such an entity
+     * @return the response entity, compressed if the client accepts it
+     */
+    public static Object compress(WebContext ctx, String endpoint, Object entity) {
+        if (entity instanceof Response) {
+            return compress(ctx, endpoint, (Response) entity);
+        }
+        int level = getLevel(endpoint);
+        if (level == 0 || ctx == null || !(entity instanceof String || entity instanceof StreamingOutput)) {
+            return entity;
+        }
+        String encoding = negotiate(ctx.getRequest().getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            return Response.ok(entity).header(VARY, HttpHeaders.ACCEPT_ENCODING).build();
+        }
+        int threshold = getThreshold();
+        if (entity instanceof String) {
+            final byte[] bytes = ((String) entity).getBytes(StandardCharsets.UTF_8);
+            if (bytes.length < threshold) {
+                return Response.ok(entity).header(VARY, HttpHeaders.ACCEPT_ENCODING).build();
+            }
+            StreamingOutput output = new StreamingOutput() {
+                @Override
+                public void write(OutputStream output) throws IOException {
+                    output.write(bytes);
+                }
+            };
+            return Response.ok(new CompressedOutput(output, encoding, level, 0, null)).header(
+                    HttpHeaders.CONTENT_ENCODING, encoding).header(VARY, HttpHeaders.ACCEPT_ENCODING).build();
+        }
+        return Response.ok(
+                new CompressedOutput((StreamingOutput) entity, encoding, level, threshold, ctx.getResponse())).header(
+                VARY, HttpHeaders.ACCEPT_ENCODING).build();
+    }
+
+    /**
+     * @return the response with its entity compressed, keeping its status and headers
+     */
+    protected static Object compress(WebContext ctx, String endpoint, Response response) {
+        Object compressed = compress(ctx, endpoint, response.getEntity());
+        if (!(compressed instanceof Response)) {
+            return response;
+        }
+        ResponseBuilder builder = Response.fromResponse((Response) compressed).status(response.getStatus());
+        for (Map.Entry<String, List<Object>> header : response.getMetadata().entrySet()) {
+            for (Object value : header.getValue()) {
+                builder.header(header.getKey(), value);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the preferred supported encoding of the Accept-Encoding header, null if none
+     */
+    public static String negotiate(String acceptEncoding) {
+        if (StringUtils.isBlank(acceptEncoding)) {
+            return null;
+        }
+        String encoding = null;
+        float quality = 0;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String name = params[0].trim().toLowerCase();
+            float q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Float.parseFloat(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if ("*".equals(name)) {
+                name = GZIP;
+            }
+            // gzip wins ties, as it comes first
+            if ((GZIP.equals(name) || DEFLATE.equals(name)) && q > quality
+                    || GZIP.equals(name) && q > 0 && q == quality) {
+                encoding = name;
+                quality = q;
+            }
+        }
+        return encoding;
+    }
+
+    protected static int getLevel(String endpoint) {
+        String level = Framework.getProperty(BoxConstants.BOX_COMPRESSION_LEVEL_PROPERTY + "." + endpoint);
+        if (level == null) {
+            level = Framework.getProperty(BoxConstants.BOX_COMPRESSION_LEVEL_PROPERTY,
+                    BoxConstants.BOX_COMPRESSION_LEVEL);
+        }
+        return Math.max(0, Math.min(Deflater.BEST_COMPRESSION, Integer.parseInt(level)));
+    }
+
+    protected static int getThreshold() {
+        return Integer.parseInt(Framework.getProperty(BoxConstants.BOX_COMPRESSION_THRESHOLD_PROPERTY,
+                BoxConstants.BOX_COMPRESSION_THRESHOLD));
+    }
+
+    /**
+     * Streaming output compressing its source once it has written more than the threshold.
+     */
+    protected static class CompressedOutput implements StreamingOutput {
+
+        protected final StreamingOutput source;
+
+        protected final String encoding;
+
+        protected final int level;
+
+        protected final int threshold;
+
+        protected final HttpServletResponse response;
+
+        /**
+         * @param response the response to set the Content-Encoding header on when compressing, null if already set
+         */
+        protected CompressedOutput(StreamingOutput source, String encoding, int level, int threshold,
+                HttpServletResponse response) {
+            this.source = source;
+            this.encoding = encoding;
+            this.level = level;
+            this.threshold = threshold;
+            this.response = response;
+        }
+
+        @Override
+        public void write(OutputStream output) throws IOException {
+            ThresholdOutputStream out = new ThresholdOutputStream(output);
+            source.write(out);
+            out.finish();
+        }
+
+        /**
+         * The deflater is released once the stream is finished, the response stream is left open.
+         */
+        protected DeflaterOutputStream newCompressedStream(OutputStream output) throws IOException {
+            if (GZIP.equals(encoding)) {
+                return new GZIPOutputStream(output) {
+                    {
+                        def.setLevel(level);
+                    }
+
+                    @Override
+                    public void finish() throws IOException {
+                        super.finish();
+                        def.end();
+                    }
+                };
+            }
+            return new DeflaterOutputStream(output, new Deflater(level)) {
+                @Override
+                public void finish() throws IOException {
+                    super.finish();
+                    def.end();
+                }
+            };
+        }
+
+        /**
+         * Buffers the first bytes of the response, and starts compressing them once past the threshold.
+         */
+        protected class ThresholdOutputStream extends OutputStream {
+
+            protected final OutputStream output;
+
+            protected byte[] buffer;
+
+            protected int count;
+
+            protected DeflaterOutputStream compressed;
+
+            protected ThresholdOutputStream(OutputStream output) {
+                this.output = output;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (compressed == null) {
+                    if (count + len < threshold) {
+                        if (buffer == null) {
+                            buffer = new byte[threshold];
+                        }
+                        System.arraycopy(b, off, buffer, count, len);
+                        count += len;
+                        return;
+                    }
+                    startCompression();
+                }
+                compressed.write(b, off, len);
+            }
+
+            protected void startCompression() throws IOException {
+                if (response != null) {
+                    response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+                }
+                compressed = newCompressedStream(output);
+                if (count > 0) {
+                    compressed.write(buffer, 0, count);
+                }
+                buffer = null;
+            }
+
+            @Override
+            public void flush() throws IOException {
+                // Below the threshold, nothing is sent until the end
+                if (compressed != null) {
+                    compressed.flush();
+                }
+            }
+
+            /**
+             * Write what remains, leaving the response stream open.
+             */
+            protected void finish() throws IOException {
+                if (compressed == null && threshold == 0) {
+                    // Compression already announced, even for an empty response
+                    startCompression();
+                }
+                if (compressed != null) {
+                    compressed.finish();
+                } else if (count > 0) {
+                    output.write(buffer, 0, count);
+                }
+                output.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.utils;
+
+import org.nuxeo.box.api.marshalling.exceptions.BoxRestException;
+
+import javax.ws.rs.core.Response;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Input stream computing the MD5 and SHA-1 digests of the bytes read, in the same pass as the upload is read.
+ *
+ * @since 7.3
+ */
+public class BoxDigestInputStream extends FilterInputStream {
+
+    protected static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    protected final MessageDigest md5 = newDigest("MD5");
+
+    protected final MessageDigest sha1 = newDigest("SHA-1");
+
+    protected byte[] md5Digest;
+
+    protected byte[] sha1Digest;
+
+    public BoxDigestInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            md5.update((byte) b);
+            sha1.update((byte) b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            md5.update(b, off, n);
+            sha1.update(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes must be digested too
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * @return the hex MD5 digest of the stream, once read
+     */
+    public String getMd5() {
+        if (md5Digest == null) {
+            md5Digest = md5.digest();
+        }
+        return toHex(md5Digest);
+    }
+
+    /**
+     * @return the hex SHA-1 digest of the stream, once read
+     */
+    public String getSha1() {
+        if (sha1Digest == null) {
+            sha1Digest = sha1.digest();
+        }
+        return toHex(sha1Digest);
+    }
+
+    /**
+     * Fails with a 412 status if the stream does not match the digests of the request headers. As Box clients send
+     * the SHA-1 of the content in the Content-MD5 header, a Content-MD5 of the length of a SHA-1 is checked as such.
+     *
+     * @param contentMd5 the Content-MD5 header, base64 or hex, or null
+     * @param contentSha1 the Content-SHA1 header, hex or base64, or null
+     */
+    public void verify(String contentMd5, String contentSha1) {
+        if (contentMd5 != null) {
+            String expected = decode(contentMd5);
+            if (!(expected.equals(getMd5()) || expected.equals(getSha1()))) {
+                throw newMismatchException(Constants.CONTENT_MD5, contentMd5);
+            }
+        }
+        if (contentSha1 != null && !decode(contentSha1).equals(getSha1())) {
+            throw newMismatchException(Constants.CONTENT_SHA1, contentSha1);
+        }
+    }
+
+    /**
+     * @return the lower case hex digest of a hex or base64 header
+     */
+    public static String decode(String digest) {
+        digest = digest.trim();
+        if (digest.matches("[0-9a-fA-F]{32}|[0-9a-fA-F]{40}")) {
+            return digest.toLowerCase();
+        }
+        try {
+            return toHex(Base64.getDecoder().decode(digest));
+        } catch (IllegalArgumentException e) {
+            return digest;
+        }
+    }
+
+    protected static BoxRestException newMismatchException(String header, String digest) {
+        return new BoxRestException("The content does not match its " + header + " header: " + digest,
+                Response.Status.PRECONDITION_FAILED.getStatusCode());
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    protected static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
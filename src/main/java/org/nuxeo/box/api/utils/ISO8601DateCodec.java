@@ -0,0 +1,288 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.utils;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.text.ParseException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * ISO 8601 codec of the box dates.
+ * <p>
+ * Dates are formatted as {@code yyyy-MM-ddTHH:mm:ss.SSS} followed by their offset, {@code Z} or {@code +hh:mm}, the
+ * way the Joda ISO date time formatter did. The digits are written in a buffer of the thread, which keeps the date and
+ * time of the last second formatted, so that only the milliseconds are written again for the dates of the same second.
+ * <p>
+ * Parsed dates are {@code yyyy-MM-ddTHH:mm[:ss[.s]]} followed by their offset, {@code Z}, {@code +hh:mm},
+ * {@code +hhmm} or {@code +hh}.
+ *
+ * @since 7.3
+ */
+public class ISO8601DateCodec {
+
+    protected static final int DATE_TIME_LENGTH = 19;
+
+    protected static final int MILLIS_LENGTH = 4;
+
+    /**
+     * Date, time, milliseconds and the longest offset, +hh:mm:ss
+     */
+    protected static final int MAX_LENGTH = DATE_TIME_LENGTH + MILLIS_LENGTH + 9;
+
+    protected static final int MAX_YEAR = 9999;
+
+    protected static final int MAX_OFFSET_HOURS = 18;
+
+    /**
+     * Formatter of the dates whose year does not have four digits, signed only when negative as with Joda
+     */
+    protected static final DateTimeFormatter FALLBACK_FORMATTER = new DateTimeFormatterBuilder().appendValue(
+            ChronoField.YEAR, 4, 10, SignStyle.NORMAL).appendPattern("-MM-dd'T'HH:mm:ss.SSSXXXXX").toFormatter();
+
+    protected static final ThreadLocal<Formatter> FORMATTERS = new ThreadLocal<Formatter>() {
+        @Override
+        protected Formatter initialValue() {
+            return new Formatter();
+        }
+    };
+
+    private ISO8601DateCodec() {
+    }
+
+    /**
+     * @return the given date in its time zone, or the current date in the default time zone if null
+     */
+    public static String format(Calendar calendar) {
+        if (calendar == null) {
+            return format(System.currentTimeMillis(), TimeZone.getDefault());
+        }
+        return format(calendar.getTimeInMillis(), calendar.getTimeZone());
+    }
+
+    /**
+     * @return the given date in the default time zone, or the current date if null
+     */
+    public static String format(Date date) {
+        return format(date == null ? System.currentTimeMillis() : date.getTime(), TimeZone.getDefault());
+    }
+
+    public static String format(long millis, TimeZone timeZone) {
+        return FORMATTERS.get().format(millis, timeZone.getOffset(millis) / 1000);
+    }
+
+    /**
+     * Per thread buffer, holding the formatted date and time and offset of its last second.
+     */
+    protected static class Formatter {
+
+        protected final char[] buffer = new char[MAX_LENGTH];
+
+        protected long second = Long.MIN_VALUE;
+
+        protected int offset;
+
+        protected int length;
+
+        protected String format(long millis, int offsetSeconds) {
+            long epochSecond = Math.floorDiv(millis, 1000);
+            int millisOfSecond = (int) Math.floorMod(millis, 1000);
+            if (epochSecond != second || offsetSeconds != offset) {
+                LocalDateTime dateTime = LocalDateTime.ofEpochSecond(epochSecond, 0,
+                        ZoneOffset.ofTotalSeconds(offsetSeconds));
+                if (dateTime.getYear() < 0 || dateTime.getYear() > MAX_YEAR) {
+                    return FALLBACK_FORMATTER.format(Instant.ofEpochMilli(millis).atOffset(
+                            ZoneOffset.ofTotalSeconds(offsetSeconds)));
+                }
+                writeDateTime(dateTime);
+                length = writeOffset(offsetSeconds, DATE_TIME_LENGTH + MILLIS_LENGTH);
+                second = epochSecond;
+                offset = offsetSeconds;
+            }
+            writeDigits(millisOfSecond, DATE_TIME_LENGTH + 1, 3);
+            return new String(buffer, 0, length);
+        }
+
+        protected void writeDateTime(LocalDateTime dateTime) {
+            writeDigits(dateTime.getYear(), 0, 4);
+            buffer[4] = '-';
+            writeDigits(dateTime.getMonthValue(), 5, 2);
+            buffer[7] = '-';
+            writeDigits(dateTime.getDayOfMonth(), 8, 2);
+            buffer[10] = 'T';
+            writeDigits(dateTime.getHour(), 11, 2);
+            buffer[13] = ':';
+            writeDigits(dateTime.getMinute(), 14, 2);
+            buffer[16] = ':';
+            writeDigits(dateTime.getSecond(), 17, 2);
+            buffer[DATE_TIME_LENGTH] = '.';
+        }
+
+        /**
+         * @return the length of the formatted date
+         */
+        protected int writeOffset(int offsetSeconds, int pos) {
+            if (offsetSeconds == 0) {
+                buffer[pos] = 'Z';
+                return pos + 1;
+            }
+            buffer[pos] = offsetSeconds < 0 ? '-' : '+';
+            int absOffset = Math.abs(offsetSeconds);
+            writeDigits(absOffset / 3600, pos + 1, 2);
+            buffer[pos + 3] = ':';
+            writeDigits(absOffset / 60 % 60, pos + 4, 2);
+            if (absOffset % 60 == 0) {
+                return pos + 6;
+            }
+            buffer[pos + 6] = ':';
+            writeDigits(absOffset % 60, pos + 7, 2);
+            return pos + 9;
+        }
+
+        protected void writeDigits(int value, int pos, int count) {
+            for (int i = pos + count - 1; i >= pos; i--) {
+                buffer[i] = (char) ('0' + value % 10);
+                value /= 10;
+            }
+        }
+    }
+
+    public static Date parse(String input) throws ParseException {
+        int year = parseDigits(input, 0, 4);
+        expect(input, 4, '-');
+        int month = parseDigits(input, 5, 2);
+        expect(input, 7, '-');
+        int day = parseDigits(input, 8, 2);
+        expect(input, 10, 'T');
+        int hour = parseDigits(input, 11, 2);
+        expect(input, 13, ':');
+        int minute = parseDigits(input, 14, 2);
+        int second = 0;
+        int millis = 0;
+        int pos = 16;
+        if (pos < input.length() && input.charAt(pos) == ':') {
+            second = parseDigits(input, pos + 1, 2);
+            pos += 3;
+            if (pos < input.length() && input.charAt(pos) == '.') {
+                int start = ++pos;
+                for (; pos < input.length() && isDigit(input.charAt(pos)); pos++) {
+                    // Digits past the milliseconds are ignored
+                    if (pos - start < 3) {
+                        millis = millis * 10 + input.charAt(pos) - '0';
+                    }
+                }
+                if (pos == start) {
+                    throw newParseException(input, pos);
+                }
+                for (int i = pos - start; i < 3; i++) {
+                    millis *= 10;
+                }
+            }
+        }
+        int offset = parseOffset(input, pos);
+        try {
+            long epochSecond = LocalDateTime.of(year, month, day, hour, minute, second).toEpochSecond(
+                    ZoneOffset.ofTotalSeconds(offset));
+            return new Date(epochSecond * 1000 + millis);
+        } catch (DateTimeException e) {
+            ParseException pe = newParseException(input, 0);
+            pe.initCause(e);
+            throw pe;
+        }
+    }
+
+    /**
+     * Same as parse method but does not throws. In case input date string cannot be parsed, null is returned.
+     */
+    public static Date parseSilently(String input) {
+        try {
+            return StringUtils.isEmpty(input) ? null : parse(input);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the offset in seconds ending the input at the given position
+     */
+    protected static int parseOffset(String input, int pos) throws ParseException {
+        if (pos >= input.length()) {
+            throw newParseException(input, pos);
+        }
+        char sign = input.charAt(pos);
+        if (sign == 'Z' && pos + 1 == input.length()) {
+            return 0;
+        }
+        if (sign != '+' && sign != '-') {
+            throw newParseException(input, pos);
+        }
+        int hours = parseDigits(input, pos + 1, 2);
+        int minutes = 0;
+        pos += 3;
+        if (pos < input.length()) {
+            if (input.charAt(pos) == ':') {
+                pos++;
+            }
+            minutes = parseDigits(input, pos, 2);
+            pos += 2;
+        }
+        if (pos != input.length() || hours > MAX_OFFSET_HOURS || minutes > 59) {
+            throw newParseException(input, pos);
+        }
+        int offset = hours * 3600 + minutes * 60;
+        return sign == '-' ? -offset : offset;
+    }
+
+    protected static int parseDigits(String input, int pos, int count) throws ParseException {
+        if (pos + count > input.length()) {
+            throw newParseException(input, input.length());
+        }
+        int value = 0;
+        for (int i = pos; i < pos + count; i++) {
+            char c = input.charAt(i);
+            if (!isDigit(c)) {
+                throw newParseException(input, i);
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    protected static void expect(String input, int pos, char expected) throws ParseException {
+        if (pos >= input.length() || input.charAt(pos) != expected) {
+            throw newParseException(input, pos);
+        }
+    }
+
+    protected static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    protected static ParseException newParseException(String input, int pos) {
+        return new ParseException("Unparseable ISO 8601 date: \"" + input + "\"", pos);
+    }
+}
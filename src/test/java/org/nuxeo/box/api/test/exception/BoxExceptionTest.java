@@ -32,6 +32,7 @@ import org.nuxeo.runtime.test.runner.Jetty;
 import javax.ws.rs.core.Response;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @since 5.9.2
@@ -44,6 +45,7 @@ public class BoxExceptionTest extends BoxBaseTest {
 
     @Test
     public void itCanReturnJSONBoxException() throws Exception {
+        long notFoundCount = boxService.getBoxErrorCount(Response.Status.NOT_FOUND.getStatusCode());
         // Get wrong folder id
         ClientResponse response = service.path("folders/blabla").get(ClientResponse.class);
         // Checking response consistency
@@ -51,6 +53,8 @@ public class BoxExceptionTest extends BoxBaseTest {
         JSONObject finalResult = getJSONFromResponse(response);
         assertEquals(404, finalResult.getInt("status"));
         assertEquals("No such document: blabla", finalResult.getString("code"));
+        assertTrue(finalResult.isNull("help_url"));
+        assertEquals(notFoundCount + 1, boxService.getBoxErrorCount(Response.Status.NOT_FOUND.getStatusCode()));
 
         // Get wrong endpoint
         response = service.path("folder").get(ClientResponse.class);
@@ -16,6 +16,7 @@
  */
 package org.nuxeo.box.api.test.file;
 
+import org.nuxeo.box.api.BoxConstants;
 import org.nuxeo.box.api.adapter.BoxAdapter;
 import org.nuxeo.box.api.marshalling.dao.BoxFile;
 import org.nuxeo.box.api.marshalling.exceptions.BoxJSONException;
@@ -24,24 +25,31 @@ import org.nuxeo.box.api.service.BoxService;
 import org.nuxeo.box.api.test.BoxBaseTest;
 import org.nuxeo.box.api.test.BoxServerFeature;
 import org.nuxeo.box.api.test.BoxServerInit;
+import org.nuxeo.box.api.utils.BoxDigestInputStream;
 
 import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.core.header.FormDataContentDisposition;
 import com.sun.jersey.multipart.FormDataBodyPart;
 import com.sun.jersey.multipart.FormDataMultiPart;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.ClientException;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.test.annotations.Granularity;
 import org.nuxeo.ecm.core.test.annotations.RepositoryConfig;
+import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
 import org.nuxeo.runtime.test.runner.Jetty;
+import org.nuxeo.runtime.transaction.TransactionHelper;
 
 import javax.inject.Inject;
 import javax.ws.rs.core.MediaType;
@@ -50,8 +58,13 @@ import javax.ws.rs.core.Response;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Arrays;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @since 5.9.2
@@ -144,4 +157,249 @@ public class BoxFileTest extends BoxBaseTest {
         JSONObject finalResult = getJSONFromResponse(response);
         assertEquals(finalResult.getString("name"), "blob.json");
     }
+
+    @Test
+    public void itCanVerifyTheDigestOfABoxFileContent() throws Exception {
+        DocumentModel folder = BoxServerInit.getFolder(1, session);
+        File file = org.nuxeo.common.utils.FileUtils.getResourceFileFromContext("blob.json");
+        byte[] content = FileUtils.readFileToByteArray(file);
+        String sha1 = BoxDigestInputStream.toHex(MessageDigest.getInstance("SHA-1").digest(content));
+
+        // Content not matching its digest
+        ClientResponse response = service.path("files/content").header("Content-MD5",
+                "0000000000000000000000000000000000000000").type(MediaType.MULTIPART_FORM_DATA).post(
+                ClientResponse.class, getFileMultiPart(folder, file, content));
+        assertEquals(Response.Status.PRECONDITION_FAILED.getStatusCode(), response.getStatus());
+
+        // SHA-1 computed on upload
+        response = service.path("files/content").header("Content-SHA1", sha1).type(
+                MediaType.MULTIPART_FORM_DATA).post(ClientResponse.class, getFileMultiPart(folder, file, content));
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        JSONObject boxFile = getJSONFromResponse(response);
+        assertEquals(sha1, boxFile.getString("sha1"));
+
+        // Same SHA-1 in the folder items
+        response = service.path("folders/" + folder.getId() + "/items").get(ClientResponse.class);
+        JSONArray entries = getJSONFromResponse(response).getJSONArray("entries");
+        String itemSha1 = null;
+        for (int i = 0; i < entries.length(); i++) {
+            if (boxFile.getString("id").equals(entries.getJSONObject(i).getString("id"))) {
+                itemSha1 = entries.getJSONObject(i).getString("sha1");
+            }
+        }
+        assertEquals(sha1, itemSha1);
+    }
+
+    @Test
+    public void itCanCreateABoxFileFromAKnownContent() throws Exception {
+        DocumentModel folder = BoxServerInit.getFolder(1, session);
+        DocumentModel otherFolder = BoxServerInit.getFolder(2, session);
+        File file = org.nuxeo.common.utils.FileUtils.getResourceFileFromContext("blob.json");
+        byte[] content = FileUtils.readFileToByteArray(file);
+        String sha1 = BoxDigestInputStream.toHex(MessageDigest.getInstance("SHA-1").digest(content));
+        ClientResponse response = service.path("files/content").header("Content-SHA1", sha1).type(
+                MediaType.MULTIPART_FORM_DATA).post(ClientResponse.class, getFileMultiPart(folder, file, content));
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+
+        // Name already used in the folder
+        response = service.path("files/content").type(MediaType.APPLICATION_JSON).method("OPTIONS",
+                ClientResponse.class, getPreflight(folder, "blob.json", sha1));
+        assertEquals(Response.Status.CONFLICT.getStatusCode(), response.getStatus());
+
+        // Content already known
+        response = service.path("files/content").type(MediaType.APPLICATION_JSON).method("OPTIONS",
+                ClientResponse.class, getPreflight(otherFolder, "copy.json", sha1));
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertTrue(getJSONFromResponse(response).getBoolean("content_exists"));
+        String unknownSha1 = "0000000000000000000000000000000000000000";
+        response = service.path("files/content").type(MediaType.APPLICATION_JSON).method("OPTIONS",
+                ClientResponse.class, getPreflight(otherFolder, "copy.json", unknownSha1));
+        assertFalse(getJSONFromResponse(response).getBoolean("content_exists"));
+
+        // Created without its bytes
+        FormDataMultiPart formDataMultiPart = new FormDataMultiPart();
+        formDataMultiPart.field("parent_id", otherFolder.getId());
+        formDataMultiPart.field("filename", "copy.json");
+        response = service.path("files/content").header("Content-SHA1", sha1).type(MediaType.MULTIPART_FORM_DATA).post(
+                ClientResponse.class, formDataMultiPart);
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        JSONObject copy = getJSONFromResponse(response);
+        assertEquals("copy.json", copy.getString("name"));
+        assertEquals(sha1, copy.getString("sha1"));
+        response = service.path("files/" + copy.getString("id") + "/content").get(ClientResponse.class);
+        assertArrayEquals(content, IOUtils.toByteArray(response.getEntityInputStream()));
+    }
+
+    @Test
+    public void itCanUploadANewVersionOfABoxFile() throws Exception {
+        final DocumentModel file = BoxServerInit.getFile(1, session);
+        byte[] content = "new version".getBytes("UTF-8");
+        String etag = getJSONFromResponse(service.path("files/" + file.getId()).get(ClientResponse.class)).getString(
+                "etag");
+
+        // Stale etag
+        ClientResponse response = service.path("files/" + file.getId() + "/content").header("If-Match",
+                etag + "_stale").type(MediaType.MULTIPART_FORM_DATA).post(ClientResponse.class,
+                getContentMultiPart(content));
+        assertEquals(Response.Status.PRECONDITION_FAILED.getStatusCode(), response.getStatus());
+
+        response = service.path("files/" + file.getId() + "/content").header("If-Match", etag).type(
+                MediaType.MULTIPART_FORM_DATA).post(ClientResponse.class, getContentMultiPart(content));
+        assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+        JSONObject version = getJSONFromResponse(response).getJSONArray("entries").getJSONObject(0);
+        assertEquals(file.getId(), version.getString("id"));
+        assertFalse(etag.equals(version.getString("etag")));
+        response = service.path("files/" + file.getId() + "/content").get(ClientResponse.class);
+        assertArrayEquals(content, IOUtils.toByteArray(response.getEntityInputStream()));
+
+        // The previous content is kept in a version
+        byte[] previousContent = FileUtils.readFileToByteArray(
+                org.nuxeo.common.utils.FileUtils.getResourceFileFromContext("blob.json"));
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        boolean previousContentKept = false;
+        for (DocumentModel fileVersion : session.getVersions(file.getRef())) {
+            Blob blob = (Blob) fileVersion.getPropertyValue("file:content");
+            previousContentKept |= Arrays.equals(previousContent, blob.getByteArray());
+        }
+        assertTrue(previousContentKept);
+
+        // The etag of the replaced version is stale too
+        response = service.path("files/" + file.getId() + "/content").header("If-Match", etag).type(
+                MediaType.MULTIPART_FORM_DATA).post(ClientResponse.class, getContentMultiPart(content));
+        assertEquals(Response.Status.PRECONDITION_FAILED.getStatusCode(), response.getStatus());
+    }
+
+    @Test
+    public void itCanCreateManyBoxFilesAtOnce() throws Exception {
+        DocumentModel folder = BoxServerInit.getFolder(3, session);
+        FormDataMultiPart formDataMultiPart = new FormDataMultiPart();
+        formDataMultiPart.field("parent_id", folder.getId());
+        for (int i = 0; i < 3; i++) {
+            formDataMultiPart.bodyPart(new FormDataBodyPart(FormDataContentDisposition.name("file").fileName(
+                    "batch_" + i + ".txt").build(), new ByteArrayInputStream(("content " + i).getBytes("UTF-8")),
+                    MediaType.APPLICATION_OCTET_STREAM_TYPE));
+        }
+
+        ClientResponse response = service.path("files/content").type(MediaType.MULTIPART_FORM_DATA).post(
+                ClientResponse.class, formDataMultiPart);
+        assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+        JSONObject collection = getJSONFromResponse(response);
+        assertEquals(3, collection.getInt("total_count"));
+        for (int i = 0; i < 3; i++) {
+            JSONObject file = collection.getJSONArray("entries").getJSONObject(i);
+            assertEquals("file", file.getString("type"));
+            assertEquals("batch_" + i + ".txt", file.getString("name"));
+            response = service.path("files/" + file.getString("id") + "/content").get(ClientResponse.class);
+            assertEquals("content " + i, IOUtils.toString(response.getEntityInputStream(), "UTF-8"));
+        }
+    }
+
+    protected FormDataMultiPart getContentMultiPart(byte[] content) {
+        FormDataMultiPart formDataMultiPart = new FormDataMultiPart();
+        formDataMultiPart.bodyPart(new FormDataBodyPart("file", new ByteArrayInputStream(content),
+                MediaType.APPLICATION_OCTET_STREAM_TYPE));
+        return formDataMultiPart;
+    }
+
+    protected String getPreflight(DocumentModel folder, String name, String sha1) {
+        return "{\"name\":\"" + name + "\", \"parent\":{\"id\":\"" + folder.getId() + "\"}, \"size\":100, \"sha1\":\""
+                + sha1 + "\"}";
+    }
+
+    protected FormDataMultiPart getFileMultiPart(DocumentModel folder, File file, byte[] content) {
+        FormDataMultiPart formDataMultiPart = new FormDataMultiPart();
+        formDataMultiPart.field("parent_id", folder.getId());
+        formDataMultiPart.field("filename", file.getName());
+        formDataMultiPart.bodyPart(new FormDataBodyPart("file", new ByteArrayInputStream(content),
+                MediaType.APPLICATION_OCTET_STREAM_TYPE));
+        return formDataMultiPart;
+    }
+
+    @Test
+    public void itCanDownloadABoxFileContent() throws Exception {
+        final DocumentModel file = BoxServerInit.getFile(1, session);
+        byte[] content = FileUtils.readFileToByteArray(
+                org.nuxeo.common.utils.FileUtils.getResourceFileFromContext("blob.json"));
+
+        // Whole content
+        ClientResponse response = service.path("files/" + file.getId() + "/content").get(ClientResponse.class);
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals("bytes", response.getHeaders().getFirst("Accept-Ranges"));
+        assertArrayEquals(content, IOUtils.toByteArray(response.getEntityInputStream()));
+        String etag = response.getHeaders().getFirst("ETag");
+
+        // Range of the content
+        response = service.path("files/" + file.getId() + "/content").header("Range", "bytes=2-5").header(
+                "If-Range", etag).get(ClientResponse.class);
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/" + content.length, response.getHeaders().getFirst("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(content, 2, 6), IOUtils.toByteArray(response.getEntityInputStream()));
+
+        // Range ignored for another version of the content
+        response = service.path("files/" + file.getId() + "/content").header("Range", "bytes=2-5").header(
+                "If-Range", "\"other\"").get(ClientResponse.class);
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertArrayEquals(content, IOUtils.toByteArray(response.getEntityInputStream()));
+
+        // Range past the end of the content
+        response = service.path("files/" + file.getId() + "/content").header("Range",
+                "bytes=" + content.length + "-").get(ClientResponse.class);
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */" + content.length, response.getHeaders().getFirst("Content-Range"));
+    }
+
+    @Test
+    public void itCanUploadABoxFileInParts() throws Exception {
+        DocumentModel folder = BoxServerInit.getFolder(1, session);
+        byte[] content = "0123456789".getBytes("UTF-8");
+
+        Framework.getProperties().setProperty(BoxConstants.BOX_UPLOAD_PART_SIZE_PROPERTY, "4");
+        Framework.getProperties().setProperty(BoxConstants.BOX_UPLOAD_MAX_SIZE_PROPERTY, "100");
+        try {
+            // Checked as a preflight before any part is uploaded
+            ClientResponse response = service.path("files/upload_sessions").post(ClientResponse.class,
+                    "{\"folder_id\":\"" + folder.getId() + "\", \"file_name\":\"note_0\", \"file_size\":10}");
+            assertEquals(Response.Status.CONFLICT.getStatusCode(), response.getStatus());
+            response = service.path("files/upload_sessions").post(ClientResponse.class,
+                    "{\"folder_id\":\"" + folder.getId() + "\", \"file_name\":\"parts.txt\", \"file_size\":101}");
+            assertEquals(413, response.getStatus());
+
+            response = service.path("files/upload_sessions").post(ClientResponse.class,
+                    "{\"folder_id\":\"" + folder.getId() + "\", \"file_name\":\"parts.txt\", \"file_size\":10}");
+            assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+            JSONObject uploadSession = getJSONFromResponse(response);
+            assertEquals(3, uploadSession.getInt("total_parts"));
+            String sessionPath = "files/upload_sessions/" + uploadSession.getString("id");
+
+            // Parts in any order
+            for (int first : new int[] { 8, 0, 4 }) {
+                int last = Math.min(first + 4, content.length) - 1;
+                response = service.path(sessionPath).header("Content-Range",
+                        "bytes " + first + "-" + last + "/" + content.length).type(
+                        MediaType.APPLICATION_OCTET_STREAM).put(ClientResponse.class,
+                        Arrays.copyOfRange(content, first, last + 1));
+                assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+                assertEquals(first, getJSONFromResponse(response).getLong("offset"));
+            }
+            // Part across two parts
+            response = service.path(sessionPath).header("Content-Range", "bytes 2-5/10").type(
+                    MediaType.APPLICATION_OCTET_STREAM).put(ClientResponse.class, Arrays.copyOfRange(content, 2, 6));
+            assertEquals(416, response.getStatus());
+
+            response = service.path(sessionPath + "/commit").post(ClientResponse.class, "{}");
+            assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+            JSONObject file = getJSONFromResponse(response).getJSONArray("entries").getJSONObject(0);
+            assertEquals("parts.txt", file.getString("name"));
+            response = service.path("files/" + file.getString("id") + "/content").get(ClientResponse.class);
+            assertArrayEquals(content, IOUtils.toByteArray(response.getEntityInputStream()));
+
+            // The session is gone
+            response = service.path(sessionPath).get(ClientResponse.class);
+            assertEquals(Response.Status.NOT_FOUND.getStatusCode(), response.getStatus());
+        } finally {
+            Framework.getProperties().remove(BoxConstants.BOX_UPLOAD_PART_SIZE_PROPERTY);
+            Framework.getProperties().remove(BoxConstants.BOX_UPLOAD_MAX_SIZE_PROPERTY);
+        }
+    }
 }
@@ -16,6 +16,10 @@
  */
 package org.nuxeo.box.api.test.folder;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.nuxeo.box.api.BoxConstants;
 import org.nuxeo.box.api.adapter.BoxAdapter;
 import org.nuxeo.box.api.folder.adapter.BoxFolderAdapter;
 import org.nuxeo.box.api.marshalling.dao.BoxFolder;
@@ -24,6 +28,7 @@ import org.nuxeo.box.api.test.BoxBaseTest;
 import org.nuxeo.box.api.test.BoxServerFeature;
 import org.nuxeo.box.api.test.BoxServerInit;
 import com.sun.jersey.api.client.ClientResponse;
+import org.apache.commons.lang.StringUtils;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Test;
@@ -42,6 +47,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 /**
  * @since 5.9.2
@@ -71,6 +77,40 @@ public class BoxFolderTest extends BoxBaseTest {
         assertEquals("null", finalResult.getJSONObject("parent").getString("sequence_id"));
     }
 
+    @Test
+    public void itCanFetchABoxFolderWithFields() throws Exception {
+
+        // Fetching the folder in Nuxeo way
+        DocumentModel folder = BoxServerInit.getFolder(1, session);
+
+        // Fetching only few fields of the folder through NX Box API
+        ClientResponse response = service.path("folders/" + folder.getId()).queryParam("fields", "id,name").get(
+                ClientResponse.class);
+
+        // Checking response consistency
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        JSONObject finalResult = getJSONFromResponse(response);
+        assertEquals(folder.getId(), finalResult.getString("id"));
+        assertEquals("folder_1", finalResult.getString("name"));
+        assertFalse(finalResult.has("path_collection"));
+        assertFalse(finalResult.has("item_collection"));
+        assertFalse(finalResult.has("created_by"));
+    }
+
+    @Test
+    public void itCanFetchABoxFolderInSmile() throws Exception {
+        DocumentModel folder = BoxServerInit.getFolder(1, session);
+
+        ClientResponse response = service.path("folders/" + folder.getId()).accept(BoxConstants.APPLICATION_SMILE).get(
+                ClientResponse.class);
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(BoxConstants.APPLICATION_SMILE, response.getType().toString());
+        JsonNode finalResult = new ObjectMapper(new SmileFactory()).readTree(response.getEntityInputStream());
+        assertEquals(folder.getId(), finalResult.get("id").asText());
+        assertEquals("folder_1", finalResult.get("name").asText());
+    }
+
     @Test
     public void itCanFetchABoxRoot() throws Exception {
 
@@ -113,6 +153,15 @@ public class BoxFolderTest extends BoxBaseTest {
         assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
     }
 
+    @Test
+    public void itCannotPostATooLargeBoxFolder() throws ClientException {
+        String description = StringUtils.repeat("a", 2 * 1024 * 1024);
+        ClientResponse response = service.path("folders").post(ClientResponse.class,
+                "{\"name\":\"Large Folder\", \"description\": \"" + description + "\", \"parent\": {\"id\": \"0\"}}");
+
+        assertEquals(413, response.getStatus());
+    }
+
     @Test
     public void itCanUpdateABoxFolder() throws ClientException, BoxJSONException, IOException, JSONException {
         // Fetching the folder in Nuxeo way
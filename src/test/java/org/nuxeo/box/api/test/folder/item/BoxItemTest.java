@@ -16,23 +16,34 @@
  */
 package org.nuxeo.box.api.test.folder.item;
 
+import org.nuxeo.box.api.BoxConstants;
 import org.nuxeo.box.api.test.BoxBaseTest;
 import org.nuxeo.box.api.test.BoxServerFeature;
 import org.nuxeo.box.api.test.BoxServerInit;
 import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.test.annotations.Granularity;
 import org.nuxeo.ecm.core.test.annotations.RepositoryConfig;
+import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
 import org.nuxeo.runtime.test.runner.Jetty;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @since 5.9.2
@@ -69,8 +80,76 @@ public class BoxItemTest extends BoxBaseTest {
         // Checking response consistency
         assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
         JSONObject finalResult = getJSONFromResponse(response);
-        assertEquals(finalResult.getString("total_count"), "2");
+        assertEquals(finalResult.getString("total_count"), "5");
+        assertEquals(finalResult.getJSONArray("entries").length(), 2);
         assertEquals(((JSONObject) finalResult.getJSONArray("entries").get(0)).get("etag"), null);
     }
 
+    @Test
+    public void itCountsBoxItemsUpToTheConfiguredCount() throws Exception {
+        DocumentModel folder = BoxServerInit.getFolder(1, session);
+
+        Framework.getProperties().setProperty(BoxConstants.BOX_COUNT_UP_TO_PROPERTY, "5");
+        try {
+            ClientResponse response = service.path("folders/" + folder.getId() + "/items").queryParam("limit", "2")
+                    .get(ClientResponse.class);
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+            assertEquals("5", getJSONFromResponse(response).getString("total_count"));
+
+            Framework.getProperties().setProperty(BoxConstants.BOX_COUNT_UP_TO_PROPERTY, "4");
+            response = service.path("folders/" + folder.getId() + "/items").queryParam("limit", "2").get(
+                    ClientResponse.class);
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+            assertEquals("-1", getJSONFromResponse(response).getString("total_count"));
+        } finally {
+            Framework.getProperties().remove(BoxConstants.BOX_COUNT_UP_TO_PROPERTY);
+        }
+    }
+
+    @Test
+    public void itCanFetchAllBoxItemsWithMarker() throws Exception {
+        // Fetching the folder in Nuxeo way
+        DocumentModel folder = BoxServerInit.getFolder(1, session);
+
+        Set<String> ids = new HashSet<>();
+        String marker = null;
+        int pages = 0;
+        do {
+            WebResource resource = service.path("folders/" + folder.getId() + "/items").queryParam("limit", "2")
+                    .queryParam("usemarker", "true");
+            if (marker != null) {
+                resource = resource.queryParam("marker", marker);
+            }
+            ClientResponse response = resource.get(ClientResponse.class);
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+            JSONObject finalResult = getJSONFromResponse(response);
+            JSONArray entries = finalResult.getJSONArray("entries");
+            for (int i = 0; i < entries.length(); i++) {
+                assertTrue(ids.add(((JSONObject) entries.get(i)).getString("id")));
+            }
+            marker = finalResult.optString("next_marker", null);
+            pages++;
+        } while (marker != null);
+        assertEquals(5, ids.size());
+        assertEquals(3, pages);
+    }
+
+    @Test
+    public void itCanFetchBoxItemsCompressed() throws Exception {
+        DocumentModel folder = BoxServerInit.getFolder(1, session);
+
+        Framework.getProperties().setProperty(BoxConstants.BOX_COMPRESSION_THRESHOLD_PROPERTY, "0");
+        try {
+            ClientResponse response = service.path("folders/" + folder.getId() + "/items").header(
+                    HttpHeaders.ACCEPT_ENCODING, "deflate;q=0.5, gzip").get(ClientResponse.class);
+
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+            assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+            String json = IOUtils.toString(new GZIPInputStream(response.getEntityInputStream()), "UTF-8");
+            JSONObject finalResult = new JSONObject(new JSONTokener(json));
+            assertEquals(5, finalResult.getJSONArray("entries").length());
+        } finally {
+            Framework.getProperties().remove(BoxConstants.BOX_COMPRESSION_THRESHOLD_PROPERTY);
+        }
+    }
 }
@@ -0,0 +1,201 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.test.marshalling;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.box.api.marshalling.dao.BoxCollaboration;
+import org.nuxeo.box.api.marshalling.dao.BoxCollection;
+import org.nuxeo.box.api.marshalling.dao.BoxComment;
+import org.nuxeo.box.api.marshalling.dao.BoxFile;
+import org.nuxeo.box.api.marshalling.dao.BoxFolder;
+import org.nuxeo.box.api.marshalling.dao.BoxGroup;
+import org.nuxeo.box.api.marshalling.dao.BoxItem;
+import org.nuxeo.box.api.marshalling.dao.BoxObject;
+import org.nuxeo.box.api.marshalling.dao.BoxTypedObject;
+import org.nuxeo.box.api.marshalling.dao.BoxUser;
+import org.nuxeo.box.api.marshalling.jsonparsing.BoxJSONParser;
+import org.nuxeo.box.api.marshalling.jsonparsing.BoxResourceHub;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The box object serializers write the same JSON as the plain bean serializers, for every box type they replace.
+ *
+ * @since 7.3
+ */
+public class BoxSerializerTest {
+
+    protected BoxJSONParser beanParser;
+
+    protected BoxJSONParser boxParser;
+
+    @Before
+    public void setup() {
+        BoxResourceHub hub = new BoxResourceHub();
+        beanParser = new BoxJSONParser(hub, false);
+        boxParser = new BoxJSONParser(hub, true);
+    }
+
+    @Test
+    public void itWritesTheSameJSONAsTheBeanSerializers() throws Exception {
+        for (BoxObject boxObject : getBoxObjects()) {
+            String expected = beanParser.convertBoxObjectToJSONString(boxObject);
+            assertEquals(expected, boxParser.convertBoxObjectToJSONString(boxObject));
+            // Written again in a generator, the mini objects being spliced from the fragment cache
+            assertEquals(expected, write(boxParser, boxObject));
+            assertEquals(expected, write(boxParser, boxObject));
+        }
+    }
+
+    @Test
+    public void itWritesTheCurrentFieldsOfTheCachedMiniObjects() throws Exception {
+        BoxFolder parent = newMiniItem(new BoxFolder(), "parent");
+        BoxFile file = newMiniItem(new BoxFile(), "file");
+        file.put(BoxItem.FIELD_PARENT, parent);
+        file.put(BoxItem.FIELD_CREATED_BY, newUser("jdoe"));
+        assertEquals(beanParser.convertBoxObjectToJSONString(file), write(boxParser, file));
+
+        // Same class, id and etag, other fields: the fragment is encoded again
+        parent.put(BoxItem.FIELD_NAME, "renamed");
+        BoxUser user = newUser("jdoe");
+        user.put(BoxItem.FIELD_NAME, "John Doe");
+        file.put(BoxItem.FIELD_CREATED_BY, user);
+        String expected = beanParser.convertBoxObjectToJSONString(file);
+        assertTrue(expected.contains("\"renamed\""));
+        assertTrue(expected.contains("\"John Doe\""));
+        assertEquals(expected, write(boxParser, file));
+        assertEquals(expected, boxParser.convertBoxObjectToJSONString(file));
+    }
+
+    protected static String write(BoxJSONParser parser, Object object) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        JsonGenerator jg = parser.createJsonGenerator(output);
+        parser.writeBoxObject(jg, object);
+        jg.flush();
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return an object of each box type, with null fields, extra fields and nested collections
+     */
+    protected static List<BoxObject> getBoxObjects() {
+        BoxUser user = newUser("jdoe");
+        user.put(BoxUser.FIELD_LOGIN, null);
+        user.handleUnknown("extra_user_field", "extra");
+
+        BoxGroup group = new BoxGroup();
+        group.put(BoxItem.FIELD_ID, "members");
+        group.put(BoxItem.FIELD_NAME, "Members");
+        group.put(BoxUser.FIELD_LOGIN, "members");
+
+        List<BoxTypedObject> pathEntries = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            pathEntries.add(newMiniItem(new BoxFolder(), "ancestor" + i));
+        }
+        BoxCollection pathCollection = newCollection(pathEntries);
+
+        BoxFile file = newMiniItem(new BoxFile(), "file");
+        file.put(BoxFile.FIELD_SHA1, "da39a3ee5e6b4b0d3255bfef95601890afd80709");
+        file.put(BoxFile.FIELD_SIZE, 1024d);
+        file.put(BoxItem.FIELD_DESCRIPTION, null);
+        file.put(BoxItem.FIELD_CREATED_BY, user);
+        file.put(BoxItem.FIELD_PARENT, pathEntries.get(0));
+        file.put(BoxItem.FIELD_PATH_COLLECTION, pathCollection);
+        file.put(BoxItem.FIELD_TAGS, new String[] { "tag1", "tag2" });
+        file.handleUnknown("extra_file_field", "extra");
+
+        List<BoxTypedObject> items = new ArrayList<>();
+        items.add(newMiniItem(new BoxFolder(), "child0"));
+        items.add(newMiniItem(new BoxFile(), "child1"));
+        items.add(file);
+        BoxCollection itemCollection = newCollection(items);
+        itemCollection.put(BoxCollection.FIELD_NEXT_MARKER, null);
+
+        BoxFolder folder = newMiniItem(new BoxFolder(), "folder");
+        folder.put(BoxItem.FIELD_DESCRIPTION, null);
+        folder.put(BoxItem.FIELD_CREATED_BY, user);
+        folder.put(BoxItem.FIELD_MODIFIED_BY, user);
+        folder.put(BoxItem.FIELD_OWNED_BY, user);
+        folder.put(BoxItem.FIELD_SHARED_LINK, null);
+        folder.put(BoxItem.FIELD_PARENT, pathEntries.get(0));
+        folder.put(BoxItem.FIELD_PATH_COLLECTION, pathCollection);
+        folder.put(BoxItem.FIELD_TAGS, new String[0]);
+        folder.put(BoxFolder.FIELD_ITEM_COLLECTION, itemCollection);
+        folder.put(BoxFolder.FIELD_HAS_COLLABORATIONS, true);
+        folder.handleUnknown("extra_folder_field", "extra");
+
+        BoxCollaboration collaboration = new BoxCollaboration();
+        collaboration.put(BoxCollaboration.FIELD_ID, "folder:members");
+        collaboration.put(BoxCollaboration.FIELD_CREATED_BY, user);
+        collaboration.put(BoxCollaboration.FIELD_ACCESSIBLE_BY, group);
+        collaboration.put(BoxCollaboration.FIELD_ROLE, "editor");
+        collaboration.put(BoxCollaboration.FIELD_STATUS, "active");
+        collaboration.put(BoxCollaboration.FIELD_EXPIRES_AT, null);
+        collaboration.put(BoxCollaboration.FIELD_FOLDER, pathEntries.get(1));
+
+        BoxComment comment = new BoxComment();
+        comment.put(BoxComment.FIELD_ID, "comment");
+        comment.put(BoxComment.FIELD_MESSAGE, "message \"quoted\" é中");
+        comment.put(BoxComment.FIELD_IS_REPLY_COMMENT, false);
+        comment.put(BoxComment.FIELD_CREATED_BY, user);
+        comment.put(BoxComment.FIELD_ITEM, items.get(1));
+
+        List<BoxTypedObject> entries = new ArrayList<>();
+        entries.add(collaboration);
+        entries.add(comment);
+        BoxCollection collection = newCollection(entries);
+        collection.handleUnknown("extra_collection_field", "extra");
+
+        return Arrays.asList(user, group, file, folder, itemCollection, collaboration, comment, collection,
+                new BoxFolder(), new BoxCollection());
+    }
+
+    protected static BoxUser newUser(String login) {
+        BoxUser user = new BoxUser();
+        user.put(BoxItem.FIELD_ID, login);
+        user.put(BoxItem.FIELD_NAME, login);
+        user.put(BoxUser.FIELD_LOGIN, login);
+        return user;
+    }
+
+    protected static <T extends BoxTypedObject> T newMiniItem(T item, String name) {
+        item.put(BoxItem.FIELD_ID, name);
+        item.put(BoxItem.FIELD_SEQUENCE_ID, name);
+        item.put(BoxItem.FIELD_ETAG, name + "_0.0");
+        item.put(BoxItem.FIELD_NAME, name);
+        return item;
+    }
+
+    protected static BoxCollection newCollection(List<? extends BoxTypedObject> entries) {
+        Map<String, Object> collectionProperties = new HashMap<>();
+        collectionProperties.put(BoxCollection.FIELD_ENTRIES, new ArrayList<>(entries));
+        collectionProperties.put(BoxCollection.FIELD_TOTAL_COUNT, entries.size());
+        return new BoxCollection(collectionProperties);
+    }
+}
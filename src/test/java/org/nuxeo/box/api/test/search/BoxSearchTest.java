@@ -20,6 +20,8 @@ import org.nuxeo.box.api.test.BoxBaseTest;
 import org.nuxeo.box.api.test.BoxServerFeature;
 import org.nuxeo.box.api.test.BoxServerInit;
 import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -31,8 +33,14 @@ import org.nuxeo.runtime.test.runner.FeaturesRunner;
 import org.nuxeo.runtime.test.runner.Jetty;
 
 import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @since 5.9.2
@@ -65,7 +73,48 @@ public class BoxSearchTest extends BoxBaseTest {
         assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
         JSONObject finalResult = getJSONFromResponse(response);
         // Checking result
-        assertEquals("2", finalResult.getString("total_count"));
+        assertEquals("5", finalResult.getString("total_count"));
+        assertEquals(2, finalResult.getJSONArray("entries").length());
+    }
+
+    @Test
+    public void itCanSearchWithMarker() throws Exception {
+        sleepForFulltext();
+        Set<String> expected = new HashSet<>();
+        JSONArray results = getJSONFromResponse(service.path("search/").queryParam("query", "folder").get(
+                ClientResponse.class)).getJSONArray("entries");
+        for (int i = 0; i < results.length(); i++) {
+            expected.add(((JSONObject) results.get(i)).getString("id"));
+        }
+
+        // Marker pages are disjoint, sorted by id and hold all the offset search results
+        List<String> ids = new ArrayList<>();
+        String marker = null;
+        int pages = 0;
+        do {
+            WebResource resource = service.path("search/").queryParam("query", "folder").queryParam("limit", "2")
+                    .queryParam("usemarker", "true");
+            if (marker != null) {
+                resource = resource.queryParam("marker", marker);
+            }
+            ClientResponse response = resource.get(ClientResponse.class);
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+            JSONObject finalResult = getJSONFromResponse(response);
+            JSONArray entries = finalResult.getJSONArray("entries");
+            assertTrue(entries.length() <= 2);
+            for (int i = 0; i < entries.length(); i++) {
+                ids.add(((JSONObject) entries.get(i)).getString("id"));
+            }
+            marker = finalResult.optString("next_marker", null);
+            pages++;
+        } while (marker != null);
+        assertEquals(5, expected.size());
+        assertEquals(expected, new HashSet<>(ids));
+        assertEquals(expected.size(), ids.size());
+        List<String> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted);
+        assertEquals(sorted, ids);
+        assertEquals(3, pages);
     }
 
 }
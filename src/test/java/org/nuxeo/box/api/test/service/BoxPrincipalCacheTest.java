@@ -0,0 +1,95 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.test.service;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.box.api.marshalling.dao.BoxGroup;
+import org.nuxeo.box.api.marshalling.dao.BoxItem;
+import org.nuxeo.box.api.marshalling.dao.BoxUser;
+import org.nuxeo.box.api.service.BoxService;
+import org.nuxeo.box.api.test.BoxServerFeature;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.platform.usermanager.UserManager;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+import javax.inject.Inject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The cached box principals are read-only and evicted when the user manager notifies a change.
+ *
+ * @since 7.3
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ BoxServerFeature.class })
+public class BoxPrincipalCacheTest {
+
+    @Inject
+    protected BoxService boxService;
+
+    @Inject
+    protected UserManager userManager;
+
+    @Test
+    public void itServesTheNewNameOfAnUpdatedUser() throws Exception {
+        String schema = userManager.getUserSchemaName();
+        DocumentModel user = userManager.getBareUserModel();
+        user.setProperty(schema, userManager.getUserIdField(), "jdoe");
+        user.setProperty(schema, "firstName", "John");
+        user.setProperty(schema, "lastName", "Doe");
+        userManager.createUser(user);
+        try {
+            BoxUser boxUser = boxService.getBoxUser("jdoe");
+            assertEquals("John Doe", boxUser.getName());
+            assertSame(boxUser, boxService.getBoxUser("jdoe"));
+            assertEquals("John Doe", boxService.getBoxCollaborator("jdoe").getName());
+
+            user = userManager.getUserModel("jdoe");
+            user.setProperty(schema, "firstName", "Jane");
+            userManager.updateUser(user);
+
+            assertEquals("Jane Doe", boxService.getBoxUser("jdoe").getName());
+            assertEquals("Jane Doe", boxService.getBoxCollaborator("jdoe").getName());
+        } finally {
+            userManager.deleteUser("jdoe");
+        }
+    }
+
+    @Test
+    public void itServesReadOnlyPrincipals() {
+        BoxGroup group = boxService.getBoxGroup("members");
+        assertTrue(group.isReadOnly());
+        try {
+            group.put(BoxItem.FIELD_NAME, "other");
+            fail("Modified a cached group");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+
+        // Copies are writable and leave the cached group unchanged
+        BoxGroup copy = new BoxGroup(group);
+        copy.put(BoxItem.FIELD_NAME, "other");
+        assertEquals("other", copy.getName());
+        assertEquals(group.getName(), boxService.getBoxGroup("members").getName());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * (C) Copyright 2015 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * Contributors:
+ *     Nuxeo
+ */
+package org.nuxeo.box.api.test.utils;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.Test;
+import org.nuxeo.box.api.utils.ISO8601DateCodec;
+
+import java.text.ParseException;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * The ISO 8601 codec writes the same dates as the Joda ISO date time formatter, and parses them back.
+ *
+ * @since 7.3
+ */
+public class ISO8601DateCodecTest {
+
+    protected static final String[] TIME_ZONES = { "UTC", "GMT-05:00", "GMT+05:30", "America/St_Johns",
+            "Asia/Kathmandu", "Europe/Paris" };
+
+    protected static final long[] DATES = { 0, 999, 1000, 1434371696000L, 1434371696789L, 1434371696999L,
+            -1L, -999L, -1000L };
+
+    @Test
+    public void itFormatsDatesAsJoda() {
+        for (String id : TIME_ZONES) {
+            TimeZone timeZone = TimeZone.getTimeZone(id);
+            for (long millis : DATES) {
+                assertFormat(millis, timeZone);
+            }
+        }
+    }
+
+    @Test
+    public void itFormatsYearsOfOtherThanFourDigitsAsJoda() {
+        for (String id : new String[] { "UTC", "GMT-05:00", "GMT+05:30" }) {
+            TimeZone timeZone = TimeZone.getTimeZone(id);
+            DateTimeZone zone = DateTimeZone.forTimeZone(timeZone);
+            assertFormat(new DateTime(999, 6, 15, 12, 34, 56, 0, zone).getMillis(), timeZone);
+            assertFormat(new DateTime(42, 1, 1, 0, 0, 0, 999, zone).getMillis(), timeZone);
+            assertFormat(new DateTime(10000, 6, 15, 12, 34, 56, 789, zone).getMillis(), timeZone);
+            assertFormat(new DateTime(-1, 12, 31, 23, 59, 59, 999, zone).getMillis(), timeZone);
+        }
+    }
+
+    @Test
+    public void itDoesNotReuseTheCachedSecondOfAnotherZone() {
+        long millis = 1434371696789L;
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        TimeZone india = TimeZone.getTimeZone("GMT+05:30");
+        TimeZone newYork = TimeZone.getTimeZone("GMT-05:00");
+        assertFormat(millis, utc);
+        // Same second, other zones
+        assertFormat(millis, india);
+        assertFormat(millis + 1, newYork);
+        assertFormat(millis, utc);
+        // Same second and zone, other milliseconds
+        assertFormat(millis - 789, utc);
+        assertFormat(millis + 210, utc);
+    }
+
+    @Test
+    public void itParsesFormattedDates() throws ParseException {
+        for (String id : TIME_ZONES) {
+            TimeZone timeZone = TimeZone.getTimeZone(id);
+            for (long millis : DATES) {
+                assertEquals(millis, ISO8601DateCodec.parse(ISO8601DateCodec.format(millis, timeZone)).getTime());
+            }
+        }
+    }
+
+    @Test
+    public void itParsesDatesWithOrWithoutMilliseconds() throws ParseException {
+        for (String input : new String[] { "2015-06-15T12:34:56.789+02:00", "2015-06-15T12:34:56+02:00",
+                "2015-06-15T12:34:56.7Z", "2015-06-15T12:34:56Z", "2015-06-15T12:34:56.000-03:30",
+                "2015-06-15T12:34:56-0330", "2015-06-15T12:34:56.789123+02", "2015-06-15T12:34+02:00" }) {
+            assertEquals(input, ISODateTimeFormat.dateTimeParser().parseMillis(input),
+                    ISO8601DateCodec.parse(input).getTime());
+        }
+    }
+
+    @Test
+    public void itFailsToParseInvalidDates() {
+        for (String input : new String[] { "", "2015", "2015-06-15", "2015-06-15T12:34:56",
+                "2015-06-15 12:34:56Z", "2015-13-01T12:34:56Z", "2015-02-30T12:34:56Z", "2015-06-15T25:34:56Z",
+                "2015-06-15T12:34:56.Z", "2015-06-15T12:34:56+25:00", "2015-06-15T12:34:56+02:60",
+                "2015-06-15T12:34:56Zgarbage", "2015-06-15T12:34:56+02:00:00", "2015-06-1aT12:34:56Z" }) {
+            try {
+                ISO8601DateCodec.parse(input);
+                fail("Parsed " + input);
+            } catch (ParseException e) {
+                // Expected
+            }
+        }
+    }
+
+    protected static void assertFormat(long millis, TimeZone timeZone) {
+        String expected = ISODateTimeFormat.dateTime().print(new DateTime(millis, DateTimeZone.forTimeZone(
+                timeZone)));
+        assertEquals(expected, ISO8601DateCodec.format(millis, timeZone));
+    }
+}